@@ -0,0 +1,151 @@
+/*
+ * BenchmarkWorkload
+ * Default package implementation of benchmarks.Workload over Heap, HeapDistinct and BSTHeapTree. Keys come from
+ * BSTHeapTreeBenchmark.keys so the JMH and main method runs measure the same data.
+ */
+
+import benchmarks.Workload;
+
+import java.util.Random;
+
+public class BenchmarkWorkload implements Workload {
+
+    private int[] keys;
+    private int[] probes;
+    private Integer[] all;
+    private Integer[] first;
+    private Integer[] second;
+    private int heap_size;
+    private boolean balanced;
+
+    private Heap<Integer> full;
+    private Heap<Integer> heap;
+    private Heap<Integer> other;
+    private HeapDistinct<Integer> distinct;
+    private BSTHeapTree<Integer> tree;
+
+    @Override
+    public void setup(int n, String distribution, int heap_size, boolean balanced) {
+        this.heap_size = heap_size;
+        this.balanced = balanced;
+        keys = BSTHeapTreeBenchmark.keys(distribution, n, new Random(42));
+        probes = keys.clone();
+        Random random = new Random(n);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = probes[i];
+            probes[i] = probes[j];
+            probes[j] = t;
+        }
+        all = boxed(keys, 0, n);
+        first = boxed(keys, 0, n / 2);
+        second = boxed(keys, n / 2, n);
+        reset_heaps();
+        reset_tree();
+    }
+
+    private static Integer[] boxed(int[] keys, int from, int to) {
+        Integer[] result = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = keys[i];
+        }
+        return result;
+    }
+
+    @Override
+    public void reset_heaps() {
+        full = new Heap<>(all, all.length);
+        heap = new Heap<>(keys.length);
+        heap.build_heap(first, first.length);
+        other = new Heap<>(second, second.length);
+
+        distinct = new HeapDistinct<>(keys.length, true);
+        distinct.build_heap(all, all.length);
+    }
+
+    @Override
+    public void reset_tree() {
+        tree = new BSTHeapTree<>(heap_size, true, balanced);
+        for (int key : keys) {
+            tree.add(key);
+        }
+    }
+
+    @Override
+    public long heap_insert() {
+        Heap<Integer> h = new Heap<>(keys.length);
+        for (int key : keys) {
+            h.insert_to_heap(key);
+        }
+        return h.get_curr_size();
+    }
+
+    @Override
+    public long heap_remove_max() {
+        long sum = 0;
+        while (full.get_curr_size() > 0) {
+            sum += full.remove_max_element();
+        }
+        return sum;
+    }
+
+    @Override
+    public long heap_merge() {
+        heap.merge_heaps(other);
+        return heap.get_curr_size();
+    }
+
+    @Override
+    public long distinct_insert() {
+        HeapDistinct<Integer> h = new HeapDistinct<>(keys.length, true);
+        for (int key : keys) {
+            h.insert_to_heap(key);
+        }
+        return h.get_curr_size();
+    }
+
+    @Override
+    public long distinct_remove_ith_largest() {
+        long sum = 0;
+        for (int i = 0; i < keys.length / 10 && distinct.get_curr_size() > 0; i++) {
+            sum += distinct.remove_ith_largest(1 + i % Math.min(16, distinct.get_curr_size()));
+        }
+        return sum;
+    }
+
+    @Override
+    public long tree_add() {
+        BSTHeapTree<Integer> t = new BSTHeapTree<>(heap_size, true, balanced);
+        for (int key : keys) {
+            t.add(key);
+        }
+        return t.get_node_count();
+    }
+
+    @Override
+    public long tree_find() {
+        long sum = 0;
+        for (int key : probes) {
+            sum += tree.find(key);
+        }
+        return sum;
+    }
+
+    @Override
+    public long tree_remove() {
+        long sum = 0;
+        for (int key : probes) {
+            sum += tree.remove(key);
+        }
+        return sum;
+    }
+
+    @Override
+    public long tree_find_mode() {
+        long sum = 0;
+        for (int i = 0; i < keys.length; i++) {
+            sum += tree.find_mode();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * HeapBenchmark
+ * JMH counterpart of the Heap and HeapDistinct cases of BSTHeapTreeBenchmark over data sizes and key
+ * distributions. Each invocation runs one batch over the n keys on heaps rebuilt before every invocation
+ * outside the clock.
+ */
+
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int n;
+
+    @Param({ "uniform", "sorted", "zipfian" })
+    public String distribution;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workload = Workload.load();
+        workload.setup(n, distribution, 64, true);
+    }
+
+    /* Batches that empty or change their heaps get fresh ones, the others just ignore them */
+    @Setup(Level.Invocation)
+    public void refill() {
+        workload.reset_heaps();
+    }
+
+    @Benchmark
+    public long heap_insert() {
+        return workload.heap_insert();
+    }
+
+    @Benchmark
+    public long heap_remove_max() {
+        return workload.heap_remove_max();
+    }
+
+    @Benchmark
+    public long heap_merge() {
+        return workload.heap_merge();
+    }
+
+    @Benchmark
+    public long distinct_insert() {
+        return workload.distinct_insert();
+    }
+
+    @Benchmark
+    public long distinct_remove_ith_largest() {
+        return workload.distinct_remove_ith_largest();
+    }
+}
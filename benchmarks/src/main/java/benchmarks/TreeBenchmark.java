@@ -0,0 +1,68 @@
+/*
+ * TreeBenchmark
+ * JMH counterpart of the BSTHeapTree cases of BSTHeapTreeBenchmark over data sizes, node heap sizes, key
+ * distributions and both tree modes. Each invocation runs one batch over the n keys on a tree refilled before
+ * every invocation outside the clock.
+ */
+
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int n;
+
+    @Param({ "4", "16", "64", "256" })
+    public int heapSize;
+
+    @Param({ "uniform", "sorted", "zipfian" })
+    public String distribution;
+
+    /* Sorted keys turn the unbalanced tree into a list, pass -p balanced=true to skip that mode */
+    @Param({ "true", "false" })
+    public boolean balanced;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workload = Workload.load();
+        workload.setup(n, distribution, heapSize, balanced);
+    }
+
+    /* Batches that empty or change their tree get a fresh one, the others just ignore it */
+    @Setup(Level.Invocation)
+    public void refill() {
+        workload.reset_tree();
+    }
+
+    @Benchmark
+    public long add() {
+        return workload.tree_add();
+    }
+
+    @Benchmark
+    public long find() {
+        return workload.tree_find();
+    }
+
+    @Benchmark
+    public long remove() {
+        return workload.tree_remove();
+    }
+
+    @Benchmark
+    public long find_mode() {
+        return workload.tree_find_mode();
+    }
+}
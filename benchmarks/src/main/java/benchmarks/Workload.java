@@ -0,0 +1,48 @@
+/*
+ * Workload
+ * Operations timed by the JMH benchmarks. JMH will not generate code for benchmarks in the default package, and
+ * code in a named package cannot refer to the default package classes of the library, so the operations are
+ * implemented by BenchmarkWorkload next to them and reached through this interface. Every operation runs a whole
+ * batch over the n keys and returns a checksum for the blackhole.
+ */
+
+package benchmarks;
+
+public interface Workload {
+
+    /* Draw n keys from distribution and keep node heaps of heap_size, balanced or not */
+    void setup(int n, String distribution, int heap_size, boolean balanced);
+
+    /* Rebuild the filled heaps the destructive heap operations work on */
+    void reset_heaps();
+
+    /* Refill the tree the destructive tree operations work on */
+    void reset_tree();
+
+    long heap_insert();
+
+    long heap_remove_max();
+
+    long heap_merge();
+
+    long distinct_insert();
+
+    long distinct_remove_ith_largest();
+
+    long tree_add();
+
+    long tree_find();
+
+    long tree_remove();
+
+    long tree_find_mode();
+
+    /* Instantiated once per trial, every call after that is an ordinary interface call */
+    static Workload load() {
+        try {
+            return (Workload) Class.forName("BenchmarkWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BenchmarkWorkload is not on the class path", e);
+        }
+    }
+}
@@ -3,7 +3,21 @@
  * BSTHeapTree
  */
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @SuppressWarnings("all")
 public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
@@ -14,16 +28,58 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
 
         private HeapDistinct<T> data;
 
+        /*
+         * Aggregates for the range queries, kept by add and remove: occurrences
+         * and smallest element of this node heap, and occurrences, distinct
+         * elements and smallest and largest element of the whole subtree
+         */
+        private long own_total;
+        private T own_min;
+        private long subtree_total;
+        private int subtree_distinct;
+        private T subtree_min;
+        private T subtree_max;
 
         public bst_node(int heapSize) {
             left = right = null;
             data = new HeapDistinct<>(heapSize);
 
         }
+
+        public bst_node(int heapSize, boolean indexed) {
+            left = right = null;
+            data = new HeapDistinct<>(heapSize, indexed);
+        }
     }
 
+    /* Weight balance factor of the balanced mode, a subtree may hold at most this share of its parent */
+    private static final double BALANCE_ALPHA = 0.7;
+
     bst_node<T> root;
     int heapSize = 0;
+    boolean indexed_nodes = false;
+    boolean balanced = false;
+    int node_count = 0;
+    int max_node_count = 0;
+
+    /* Subtrees estimated to hold fewer nodes than this are reduced sequentially */
+    private static final int SEQUENTIAL_CUTOFF = 512;
+
+    /* Snapshot header: "BSTH" and the format version */
+    private static final int SNAPSHOT_MAGIC = 0x42535448;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_HAS_LEFT = 1;
+    private static final int SNAPSHOT_HAS_RIGHT = 2;
+    private static final int SNAPSHOT_BUFFER = 1 << 16;
+
+    /* Occurrence count buckets of every element, kept in step by add and remove */
+    FrequencyIndex<T> frequency = new FrequencyIndex<>();
+
+    /* Nodes passed on the way down by add, reused between calls */
+    private final ArrayList<bst_node<T>> add_path = new ArrayList<>();
+
+    /* Instrumentation attached by enable_stats, null when off */
+    private BSTHeapTreeStats stats;
 
     public BSTHeapTree(int heapSize) {
         super(heapSize);
@@ -31,53 +87,208 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
         root = null;
     }
 
+    /*
+     * Tree whose node heaps keep an element to index map, which makes the per node
+     * search in add, find and remove O(1). Worth it for large heapSize values.
+     */
+    public BSTHeapTree(int heapSize, boolean indexed_nodes) {
+        this(heapSize);
+        this.indexed_nodes = indexed_nodes;
+    }
+
+    /*
+     * Tree that keeps its depth logarithmic in the number of nodes for any
+     * insertion order. Rotations cannot be used here because a node keeps
+     * elements smaller than its max key, which would end up on the wrong side of
+     * a node rotated above it, so an unbalanced subtree is rebuilt instead
+     * (scapegoat tree): its elements are sorted, packed into full nodes and
+     * linked back as a perfectly balanced subtree.
+     */
+    public BSTHeapTree(int heapSize, boolean indexed_nodes, boolean balanced) {
+        this(heapSize, indexed_nodes);
+        this.balanced = balanced;
+    }
+
+    /* Create an empty tree node honouring the node indexing mode */
+    private bst_node<T> new_node() {
+        node_count++;
+        max_node_count = Math.max(max_node_count, node_count);
+        return new bst_node<>(heapSize, indexed_nodes);
+    }
+
+    /*
+     * Start timing add, find and remove of this tree and publish the results as
+     * MXBeans named name, see BSTHeapTreeStats. Compare, swap and node visit
+     * counts also need the JVM flag -Dbstheap.stats=true.
+     */
+    public BSTHeapTreeStats enable_stats(String name) {
+        disable_stats();
+        BSTHeapTreeStats attached = new BSTHeapTreeStats(this, name);
+        attached.register();
+        stats = attached;
+        return attached;
+    }
+
+    /*
+     * Stop timing operations and drop the MXBeans, a no-op when stats are off
+     */
+    public void disable_stats() {
+        if (stats != null) {
+            stats.unregister();
+            stats = null;
+        }
+    }
+
+    /*
+     * Get the attached instrumentation, null when stats are off
+     */
+    public BSTHeapTreeStats get_stats() {
+        return stats;
+    }
+
+    /*
+     * Get number of heap nodes in the tree
+     */
+    public int get_node_count() {
+        return node_count;
+    }
+
+    /*
+     * Get the height of the tree counted in nodes, 0 for an empty tree
+     */
+    public int get_height() {
+        int height = 0;
+        ArrayDeque<bst_node<T>> level = new ArrayDeque<>();
+        if (root != null) {
+            level.add(root);
+        }
+
+        while (!level.isEmpty()) {
+            height++;
+            for (int i = level.size(); i > 0; i--) {
+                bst_node<T> node = level.poll();
+                if (node.left != null) {
+                    level.add(node.left);
+                }
+                if (node.right != null) {
+                    level.add(node.right);
+                }
+            }
+        }
+        return height;
+    }
+
     /*
      * Add element to the heap . If already there then increases the occurences
      */
     public int add(T element) {
+        BSTHeapTreeStats probe = stats;
+        if (probe != null) {
+            probe.begin();
+        }
+
+        int occurrences = add_to_tree(element);
+        frequency.increment(element);
+
+        if (probe != null) {
+            probe.end(probe.add);
+        }
+        record_event(element);
+        return occurrences;
+    }
+
+    /*
+     * Take back one occurrence of an expired add, without counting it as a
+     * remove in the stats
+     */
+    @Override
+    void expire_event(T element) {
+        if (frequency.get_frequency(element) > 0) {
+            remove_from_tree(element);
+            frequency.decrement(element);
+        }
+    }
+
+    private int add_to_tree(T element) {
 
         if (root == null) {
-            root = new bst_node<>(heapSize);
+            root = new_node();
         }
 
         bst_node<T> temp = root;
 
+        ArrayList<bst_node<T>> path = add_path;
+        path.clear();
+
         while (true) {
+            HeapStats.count_visit();
             int[] idx = new int[2];
             boolean in_this_node = temp.data.search_element(element, idx);
 
             if (in_this_node) {
                 temp.data.insert_to_heap(element);
+                stored(path, temp, element, false);
                 return temp.data.get_ith_elements_occurence(idx[0]);
             }
 
             /* If not Found in Current Node */
 
             int Hsize = temp.data.get_curr_size();
-            int Msize = temp.data.get_max_size();
 
-            if (Hsize >= 0 && Hsize < heapSize) {
+            /*
+             * A non full node takes the element unless that raises its max above its
+             * right subtree. Below a node emptied by removals the element may already
+             * be stored further down, so look there first.
+             */
+            if (Hsize < heapSize && (Hsize == 0 || temp.right == null
+                    || HeapStats.compare(temp.data.get_ith_element(1), element) > 0)) {
+                bst_node<T> holder = (temp.left == null && temp.right == null) ? null
+                        : find_node(temp, element, idx);
+                if (holder != null) {
+                    holder.data.insert_to_heap(element);
+                    for (bst_node<T> curr = temp; curr != holder; curr = (curr.data.get_curr_size() == 0
+                            || HeapStats.compare(curr.data.get_ith_element(1), element) > 0) ? curr.left : curr.right) {
+                        path.add(curr);
+                    }
+                    stored(path, holder, element, false);
+                    return holder.data.get_ith_elements_occurence(idx[0]);
+                }
                 temp.data.insert_to_heap(element);
+                stored(path, temp, element, true);
                 return 1;
             }
 
-            if (Hsize == Msize) {
+            path.add(temp);
+
+            if (Hsize > 0) {
 
-                if ((temp.data.get_ith_element(1).compareTo(element)) > 0) {
+                if ((HeapStats.compare(temp.data.get_ith_element(1), element)) > 0) {
 
                     if (temp.left != null) {
                         temp = temp.left;
                     } else {
-                        temp.left = new bst_node<>(heapSize);
+                        temp.left = new_node();
                         temp.left.data.insert_to_heap(element);
+                        scan_own(temp.left);
+                        refresh(temp.left);
+                        grow(path, element, true);
+                        if (balanced) {
+                            rebalance_after_insert(element);
+                        }
                         return 1;
                     }
-                } else if ((temp.data.get_ith_element(1).compareTo(element)) < 0) {
+                } else if ((HeapStats.compare(temp.data.get_ith_element(1), element)) < 0) {
                     if (temp.right != null) {
                         temp = temp.right;
                     } else {
-                        temp.right = new bst_node<>(heapSize);
+                        temp.right = new_node();
                         temp.right.data.insert_to_heap(element);
+                        scan_own(temp.right);
+                        refresh(temp.right);
+                        grow(path, element, true);
+                        if (balanced) {
+                            rebalance_after_insert(element);
+                        }
                         return 1;
                     }
 
@@ -86,6 +297,303 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
         }
     }
 
+    /* Account one occurrence of element stored in node, reached along path */
+    private void stored(List<bst_node<T>> path, bst_node<T> node, T element, boolean new_entry) {
+        path.add(node);
+        grow(path, element, new_entry);
+        node.own_total++;
+        if (new_entry) {
+            node.own_min = lower(node.own_min, element);
+        }
+    }
+
+    /* Smaller and larger of two elements where null means none */
+    private T lower(T a, T b) {
+        return (a == null || (b != null && HeapStats.compare(b, a) < 0)) ? b : a;
+    }
+
+    private T higher(T a, T b) {
+        return (a == null || (b != null && HeapStats.compare(b, a) > 0)) ? b : a;
+    }
+
+    /*
+     * Account one more occurrence of element in the subtree of every node on
+     * path, new_entry when it was not stored in the tree before
+     */
+    private void grow(List<bst_node<T>> path, T element, boolean new_entry) {
+        /* Deepest first: once a subtree range covers element so do those of all its ancestors */
+        boolean covered = false;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            bst_node<T> node = path.get(i);
+            node.subtree_total++;
+            if (new_entry) {
+                node.subtree_distinct++;
+            }
+            if (!covered) {
+                /* Written only when they move, most adds land inside the range already */
+                boolean above_min = node.subtree_min != null && HeapStats.compare(node.subtree_min, element) < 0;
+                boolean below_max = node.subtree_max != null && HeapStats.compare(node.subtree_max, element) > 0;
+                if (!above_min) {
+                    node.subtree_min = lower(node.subtree_min, element);
+                }
+                if (!below_max) {
+                    node.subtree_max = higher(node.subtree_max, element);
+                }
+                covered = above_min && below_max;
+            }
+        }
+    }
+
+    /* Recompute the node heap aggregates with a scan of the node heap */
+    private void scan_own(bst_node<T> node) {
+        long total = 0;
+        T min = null;
+        for (int i = 1; i <= node.data.get_curr_size(); i++) {
+            total += node.data.get_ith_elements_occurence(i);
+            min = lower(min, node.data.get_ith_element(i));
+        }
+        node.own_total = total;
+        node.own_min = min;
+    }
+
+    /* Recompute the subtree aggregates of node from its own and its children's in O(1) */
+    private void refresh(bst_node<T> node) {
+        long total = node.own_total;
+        int distinct = node.data.get_curr_size();
+        T min = node.own_min;
+        T max = (distinct > 0) ? node.data.get_ith_element(1) : null;
+
+        if (node.left != null) {
+            total += node.left.subtree_total;
+            distinct += node.left.subtree_distinct;
+            min = lower(min, node.left.subtree_min);
+            max = higher(max, node.left.subtree_max);
+        }
+        if (node.right != null) {
+            total += node.right.subtree_total;
+            distinct += node.right.subtree_distinct;
+            min = lower(min, node.right.subtree_min);
+            max = higher(max, node.right.subtree_max);
+        }
+        node.subtree_total = total;
+        node.subtree_distinct = distinct;
+        node.subtree_min = min;
+        node.subtree_max = max;
+    }
+
+    /* {occurrences, distinct elements} of the elements between lo and hi inclusive */
+    private long[] range(T lo, T hi) {
+        long[] result = new long[2];
+        if (root == null || HeapStats.compare(lo, hi) > 0) {
+            return result;
+        }
+
+        ArrayDeque<bst_node<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            bst_node<T> node = stack.pop();
+            HeapStats.count_visit();
+            if (node.subtree_min == null || HeapStats.compare(node.subtree_max, lo) < 0
+                    || HeapStats.compare(node.subtree_min, hi) > 0) {
+                continue;
+            }
+            if (HeapStats.compare(lo, node.subtree_min) <= 0 && HeapStats.compare(node.subtree_max, hi) <= 0) {
+                result[0] += node.subtree_total;
+                result[1] += node.subtree_distinct;
+                continue;
+            }
+
+            for (int i = 1; i <= node.data.get_curr_size(); i++) {
+                T element = node.data.get_ith_element(i);
+                if (HeapStats.compare(lo, element) <= 0 && HeapStats.compare(element, hi) <= 0) {
+                    result[0] += node.data.get_ith_elements_occurence(i);
+                    result[1]++;
+                }
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Number of occurrences of elements between lo and hi inclusive. Subtrees
+     * wholly inside or outside the range are answered from their aggregates, so
+     * only the node heaps along the two range boundaries are scanned.
+     */
+    public long count_range(T lo, T hi) {
+        return range(lo, hi)[0];
+    }
+
+    /*
+     * Number of distinct elements between lo and hi inclusive, pruned like
+     * count_range
+     */
+    public int distinct_in_range(T lo, T hi) {
+        return (int) range(lo, hi)[1];
+    }
+
+    /* {occurrences, distinct elements} of the elements smaller than element */
+    private long[] below(T element) {
+        if (root == null || root.subtree_min == null || HeapStats.compare(element, root.subtree_min) <= 0) {
+            return new long[2];
+        }
+        long[] upto = range(root.subtree_min, element);
+        long[] equal = range(element, element);
+        return new long[] { upto[0] - equal[0], upto[1] - equal[1] };
+    }
+
+    /*
+     * Number of occurrences of elements smaller than element, so the 0 based
+     * position its first occurrence has or would have in sorted order
+     */
+    public long rank(T element) {
+        return below(element)[0];
+    }
+
+    /* Number of distinct elements smaller than element */
+    public int distinct_rank(T element) {
+        return (int) below(element)[1];
+    }
+
+    /*
+     * Returns the kth smallest element counting every occurrence, k from 1 to
+     * the number of occurrences stored
+     */
+    public T select(long k) {
+        return select(k, true);
+    }
+
+    /* Returns the kth smallest distinct element, k from 1 */
+    public T select_distinct(int k) {
+        return select(k, false);
+    }
+
+    /*
+     * Element below which the given fraction of all occurrences lies, 0.5 for
+     * the median and 0.99 for the 99th percentile
+     */
+    public T percentile(double fraction) {
+        if (root == null || root.subtree_total == 0) {
+            throw new NoSuchElementException("Tree Is Empty.");
+        }
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Percentile fraction must be between 0 and 1");
+        }
+        return select(Math.max(1, (long) Math.ceil(fraction * root.subtree_total)));
+    }
+
+    /*
+     * Everything in the right subtree of a node is larger than everything in
+     * the node heap and its left subtree, so the descent goes right past those,
+     * or left carrying the node heap along. Carried elements are kept sorted and
+     * weighted, and the ones below the range of the next subtree are settled
+     * before entering it, so only heaps overlapping that range are carried. A
+     * lookup scans the heaps on one path, O(depth + heapSize log heapSize) per
+     * carried heap.
+     */
+    private T select(long k, boolean weighted) {
+        long total = (root == null) ? 0 : (weighted ? root.subtree_total : root.subtree_distinct);
+        if (k < 1 || k > total) {
+            throw new NoSuchElementException("No element of rank " + k + ", tree holds " + total);
+        }
+
+        ArrayList<T> carried = new ArrayList<>();
+        ArrayList<Long> carried_weight = new ArrayList<>();
+        bst_node<T> node = root;
+
+        while (node != null) {
+            HeapStats.count_visit();
+
+            /* Settle carried elements below this subtree */
+            int low = 0;
+            while (low < carried.size() && node.subtree_min != null
+                    && HeapStats.compare(carried.get(low), node.subtree_min) < 0) {
+                if (k <= carried_weight.get(low)) {
+                    return carried.get(low);
+                }
+                k -= carried_weight.get(low);
+                low++;
+            }
+            carried.subList(0, low).clear();
+            carried_weight.subList(0, low).clear();
+
+            /* Split carried elements at the smallest element of the right subtree */
+            int split = carried.size();
+            if (node.right != null && node.right.subtree_min != null) {
+                split = 0;
+                while (split < carried.size() && HeapStats.compare(carried.get(split), node.right.subtree_min) < 0) {
+                    split++;
+                }
+            }
+
+            long before_right = weighted ? node.own_total : node.data.get_curr_size();
+            if (node.left != null) {
+                before_right += weighted ? node.left.subtree_total : node.left.subtree_distinct;
+            }
+            for (int i = 0; i < split; i++) {
+                before_right += carried_weight.get(i);
+            }
+
+            if (k > before_right) {
+                k -= before_right;
+                carried.subList(0, split).clear();
+                carried_weight.subList(0, split).clear();
+                node = node.right;
+            } else {
+                carried.subList(split, carried.size()).clear();
+                carried_weight.subList(split, carried_weight.size()).clear();
+                carry(node, weighted, carried, carried_weight);
+                node = node.left;
+            }
+        }
+
+        for (int i = 0; i < carried.size(); i++) {
+            if (k <= carried_weight.get(i)) {
+                return carried.get(i);
+            }
+            k -= carried_weight.get(i);
+        }
+        throw new NoSuchElementException("No element of rank " + k);
+    }
+
+    /* Merge the node heap, sorted, into the sorted carried elements */
+    private void carry(bst_node<T> node, boolean weighted, ArrayList<T> carried, ArrayList<Long> carried_weight) {
+        int n = node.data.get_curr_size();
+        if (n == 0) {
+            return;
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i + 1;
+        }
+        Arrays.sort(order, (a, b) -> HeapStats.compare(node.data.get_ith_element(a), node.data.get_ith_element(b)));
+
+        ArrayList<T> merged = new ArrayList<>(carried.size() + n);
+        ArrayList<Long> merged_weight = new ArrayList<>(carried.size() + n);
+        int c = 0;
+        for (int o = 0; o < n || c < carried.size();) {
+            if (o < n && (c == carried.size()
+                    || HeapStats.compare(node.data.get_ith_element(order[o]), carried.get(c)) < 0)) {
+                merged.add(node.data.get_ith_element(order[o]));
+                merged_weight.add(weighted ? (long) node.data.get_ith_elements_occurence(order[o]) : 1L);
+                o++;
+            } else {
+                merged.add(carried.get(c));
+                merged_weight.add(carried_weight.get(c));
+                c++;
+            }
+        }
+        carried.clear();
+        carried.addAll(merged);
+        carried_weight.clear();
+        carried_weight.addAll(merged_weight);
+    }
+
     /*
      * Finds the element according to the its position in bst. It checks heap at
      * every node and returns the occurences if found else -1
@@ -93,74 +601,312 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
 
     public int find(T element) {
 
+        expire();
         bst_node<T> temp = root;
 
         if (temp == null) {
             throw new NoSuchElementException("Tree Is Empty. Root is Null.");
         }
 
+        BSTHeapTreeStats probe = stats;
+        if (probe != null) {
+            probe.begin();
+        }
+
+        int[] idx = new int[2];
+        idx[0] = -1;
+        temp = find_node(temp, element, idx);
+
+        if (probe != null) {
+            probe.end(probe.find);
+        }
+
+        if (temp != null) {
+            return temp.data.get_ith_elements_occurence(idx[0]);
+        }
+        /* Can't Find */
+        return -1;
+    }
+
+    /*
+     * Walks down from temp along the search path of element and returns the node
+     * holding it with its heap index in idx[0], or null if it is not there.
+     */
+    private bst_node<T> find_node(bst_node<T> temp, T element, int[] idx) {
+
         while (temp != null) {
-            int[] idx = new int[2];
-            idx[0] = -1;
+            HeapStats.count_visit();
             boolean in_this_node = temp.data.search_element(element, idx);
 
 
             if (in_this_node == true) {
-                return temp.data.get_ith_elements_occurence(idx[0]);
+                return temp;
             }
 
             /* Not Present in current */
 
-            if (temp.data.get_ith_element(1).compareTo(element) > 0) {
+            if (temp.data.get_curr_size() == 0 || HeapStats.compare(temp.data.get_ith_element(1), element) > 0) {
                 temp = temp.left;
             } else {
                 temp = temp.right;
             }
         }
-        /* Can't Find */
-        return -1;
+        return null;
     }
 
     /*
-     * Helper function to mode in the BST which element has maximum frequency by
-     * post order traversal of BST and checking heap at everynode.
+     * Function to find the mode in BST. Returns the highest occurrence count,
+     * read from the frequency buckets in O(1). With a window enabled, adds that
+     * fell out of it are taken back first, here and in find and top_k_frequent.
      */
+    public int find_mode() {
+        expire();
+        return frequency.get_max_frequency();
+    }
 
-    private void helper_find_mode(bst_node<T> node, Comparable<T>[] element, int[] mode) {
+    /*
+     * Fork/join reduction of one subtree. Both child subtrees are split off as
+     * tasks while the subtree is estimated, from the node count halved per level,
+     * to hold at least SEQUENTIAL_CUTOFF nodes; below that it is walked with an
+     * explicit stack so a degenerate tree cannot overflow the call stack.
+     */
+    private static class reduce_task<T extends Comparable<T>, R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final bst_node<T> node;
+        private final long estimate;
+        private final Supplier<R> identity;
+        private final ElementReducer<T, R> accumulator;
+        private final BinaryOperator<R> combiner;
+
+        reduce_task(bst_node<T> node, long estimate, Supplier<R> identity, ElementReducer<T, R> accumulator,
+                    BinaryOperator<R> combiner) {
+            this.node = node;
+            this.estimate = estimate;
+            this.identity = identity;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
 
-        if (node == null) {
-            return;
+        private R fold(bst_node<T> curr, R result) {
+            for (int i = 1; i <= curr.data.get_curr_size(); i++) {
+                result = accumulator.accumulate(result, curr.data.get_ith_element(i),
+                        curr.data.get_ith_elements_occurence(i));
+            }
+            return result;
         }
 
-        helper_find_mode(node.left, element, mode);
-        helper_find_mode(node.right, element, mode);
+        protected R compute() {
+            if (estimate < SEQUENTIAL_CUTOFF) {
+                R result = identity.get();
+                ArrayDeque<bst_node<T>> stack = new ArrayDeque<>();
+                stack.push(node);
+                while (!stack.isEmpty()) {
+                    bst_node<T> curr = stack.pop();
+                    result = fold(curr, result);
+                    if (curr.left != null) {
+                        stack.push(curr.left);
+                    }
+                    if (curr.right != null) {
+                        stack.push(curr.right);
+                    }
+                }
+                return result;
+            }
 
-        /* find mode for each node in BST */
+            reduce_task<T, R> left = null;
+            if (node.left != null) {
+                left = new reduce_task<>(node.left, estimate / 2, identity, accumulator, combiner);
+                left.fork();
+            }
+            R result = fold(node, identity.get());
+            if (node.right != null) {
+                result = combiner.apply(result,
+                        new reduce_task<>(node.right, estimate / 2, identity, accumulator, combiner).compute());
+            }
+            if (left != null) {
+                result = combiner.apply(left.join(), result);
+            }
+            return result;
+        }
+    }
 
-        int Hsize = node.data.get_curr_size();
+    /*
+     * Reduce every stored element and its occurrences in parallel on pool. Each
+     * subtree task starts from a fresh identity and partial results are merged
+     * with combiner, left subtree first, so mutable containers can be used as
+     * results. The tree must not change while the reduction runs.
+     */
+    public <R> R parallel_reduce(ForkJoinPool pool, Supplier<R> identity, ElementReducer<T, R> accumulator,
+                                 BinaryOperator<R> combiner) {
+        if (root == null) {
+            return identity.get();
+        }
+        return pool.invoke(new reduce_task<>(root, node_count, identity, accumulator, combiner));
+    }
 
-        for (int i = 1; i <= Hsize; i++) {
+    /*
+     * parallel_reduce on the common fork/join pool
+     */
+    public <R> R parallel_reduce(Supplier<R> identity, ElementReducer<T, R> accumulator, BinaryOperator<R> combiner) {
+        return parallel_reduce(ForkJoinPool.commonPool(), identity, accumulator, combiner);
+    }
 
-            if (mode[1] < node.data.get_ith_elements_occurence(i)) {
+    /* {total occurrences, distinct elements, highest occurrence} over the whole tree */
+    private long[] parallel_aggregate() {
+        return parallel_reduce(() -> new long[3], (acc, element, occurrences) -> {
+            if (occurrences > 0) {
+                acc[0] += occurrences;
+                acc[1]++;
+                acc[2] = Math.max(acc[2], occurrences);
+            }
+            return acc;
+        }, (a, b) -> {
+            a[0] += b[0];
+            a[1] += b[1];
+            a[2] = Math.max(a[2], b[2]);
+            return a;
+        });
+    }
 
-                element[0] = (T) (node.data.get_ith_element(i));
-                mode[1] = node.data.get_ith_elements_occurence(i);
+    /*
+     * Highest occurrence count computed from the node heaps by a parallel walk,
+     * the same value find_mode reads from the frequency buckets
+     */
+    public int parallel_find_mode() {
+        return (int) parallel_aggregate()[2];
+    }
+
+    /*
+     * Number of elements counting every occurrence, by a parallel walk
+     */
+    public long parallel_total_count() {
+        return parallel_aggregate()[0];
+    }
 
+    /*
+     * Number of distinct elements, by a parallel walk
+     */
+    public long parallel_distinct_count() {
+        return parallel_aggregate()[1];
+    }
+
+    /*
+     * Spliterator over the stored elements, one per node heap entry. It owns some
+     * whole subtrees and at most one node heap being read. A split hands off one
+     * whole subtree, first taking a lone subtree apart into its node heap and its
+     * two children, so every part knows its exact size from subtree_distinct.
+     */
+    private static class node_spliterator<T extends Comparable<T>> implements Spliterator<T> {
+        private final ArrayDeque<bst_node<T>> subtrees = new ArrayDeque<>();
+        private bst_node<T> current;
+        private int next_idx;
+        private long remaining;
+
+        node_spliterator(bst_node<T> subtree) {
+            if (subtree != null) {
+                subtrees.push(subtree);
+                remaining = subtree.subtree_distinct;
+            }
+        }
+
+        /* Start reading the node heap of subtree and keep its children for later */
+        private void open(bst_node<T> subtree) {
+            current = subtree;
+            next_idx = 1;
+            if (subtree.right != null) {
+                subtrees.push(subtree.right);
+            }
+            if (subtree.left != null) {
+                subtrees.push(subtree.left);
+            }
+        }
+
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (current == null || next_idx > current.data.get_curr_size()) {
+                if (subtrees.isEmpty()) {
+                    current = null;
+                    return false;
+                }
+                open(subtrees.pop());
+            }
+            remaining--;
+            action.accept(current.data.get_ith_element(next_idx++));
+            return true;
+        }
+
+        public Spliterator<T> trySplit() {
+            if (subtrees.size() == 1 && (current == null || next_idx > current.data.get_curr_size())) {
+                open(subtrees.pop());
+            }
+            if (subtrees.isEmpty()) {
+                return null;
             }
+            bst_node<T> handed = subtrees.removeLast();
+            remaining -= handed.subtree_distinct;
+            return new node_spliterator<>(handed);
         }
 
+        public long estimateSize() {
+            return remaining;
+        }
+
+        public int characteristics() {
+            return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
     }
 
     /*
-     * Function to find the mode in BST.
+     * Splits the tree by subtree, every part knowing its exact size. Each stored
+     * element is reported once per node holding it, its occurrences are read
+     * with find. The tree must not change while the spliterator is in use.
      */
-    public int find_mode() {
-        bst_node<T> temp = root;
-        int[] mode = new int[2];
-        Comparable<T>[] Tmode = new Comparable[2];
-        helper_find_mode(temp, Tmode, mode);
+    @Override
+    public Spliterator<T> spliterator() {
+        expire();
+        return new node_spliterator<>(root);
+    }
+
+    /*
+     * Iterates the elements of the nodes through the node spliterator instead of
+     * the heap inherited from HeapDistinct, which the tree leaves empty. The
+     * elements live in the nodes, so setValue is not supported.
+     */
+    public class node_iterator extends HeapIterator {
+        private final Iterator<T> nodes = Spliterators.iterator(spliterator());
+
+        @Override
+        public boolean hasNext() {
+            return nodes.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return nodes.next();
+        }
 
-        return mode[1];
+        @Override
+        public T setValue(T item) {
+            throw new UnsupportedOperationException("setValue is not supported on a BSTHeapTree");
+        }
+    }
+
+    @Override
+    public node_iterator iterator() {
+        return new node_iterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        spliterator().forEachRemaining(action);
+    }
+
+    /*
+     * Returns the k most frequent elements in the tree, most frequent first, in O(k)
+     */
+    public List<T> top_k_frequent(int k) {
+        expire();
+        return frequency.top_k(k);
     }
 
     /*
@@ -180,6 +926,211 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
         node.data.print();
     }
 
+    /*
+     * Count the nodes of the subtree rooted at node
+     */
+    private int count_nodes(bst_node<T> node) {
+        int count = 0;
+        ArrayDeque<bst_node<T>> stack = new ArrayDeque<>();
+        if (node != null) {
+            stack.push(node);
+        }
+
+        while (!stack.isEmpty()) {
+            bst_node<T> curr = stack.pop();
+            count++;
+            if (curr.left != null) {
+                stack.push(curr.left);
+            }
+            if (curr.right != null) {
+                stack.push(curr.right);
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Build a perfectly balanced subtree over the sorted distinct elements. They
+     * are packed heapSize at a time into nodes, chunk lo to hi, and the middle
+     * chunk becomes the root so every node max key stays between its left and
+     * right subtrees. A chunk read backwards is already a valid heap, so the node
+     * heaps are filled without any comparison.
+     */
+    private bst_node<T> build_balanced(T[] elements, int[] counts, int len, int lo, int hi) {
+        if (lo > hi) {
+            return null;
+        }
+
+        int mid = (lo + hi) / 2;
+        int from = mid * heapSize;
+        int to = Math.min(len, from + heapSize);
+
+        T[] chunk = (T[]) new Comparable[to - from];
+        int[] chunk_counts = new int[to - from];
+        for (int i = 0; i < to - from; i++) {
+            chunk[i] = elements[to - 1 - i];
+            chunk_counts[i] = counts[to - 1 - i];
+        }
+
+        bst_node<T> node = new_node();
+        node.data.restore_heap(chunk, chunk_counts, to - from);
+        node.left = build_balanced(elements, counts, len, lo, mid - 1);
+        node.right = build_balanced(elements, counts, len, mid + 1, hi);
+        scan_own(node);
+        refresh(node);
+        return node;
+    }
+
+    /*
+     * Rebuild the non empty subtree rooted at node as a balanced subtree of full
+     * nodes. The new subtree root is copied into node so its parent link stays.
+     */
+    private void rebuild_in_place(bst_node<T> node) {
+        TreeMap<T, Integer> sorted = new TreeMap<>();
+        int old_nodes = count_nodes(node);
+        collect(node, sorted);
+
+        int len = sorted.size();
+        T[] elements = (T[]) new Comparable[len];
+        int[] counts = new int[len];
+        int itr = 0;
+        for (Map.Entry<T, Integer> entry : sorted.entrySet()) {
+            elements[itr] = entry.getKey();
+            counts[itr++] = entry.getValue();
+        }
+
+        node_count -= old_nodes;
+        bst_node<T> rebuilt = build_balanced(elements, counts, len, 0, (len - 1) / heapSize);
+        node.data = rebuilt.data;
+        node.left = rebuilt.left;
+        node.right = rebuilt.right;
+        scan_own(node);
+        refresh(node);
+    }
+
+    /*
+     * Bulk load: add every element of values, duplicates counted as occurrences,
+     * and rebuild the whole tree as a perfectly balanced tree of full nodes. The
+     * input is sorted once and merged with the current content, so loading n
+     * elements costs O(n log n) whatever their order, against a search through
+     * every node heap on the path for each single add.
+     */
+    public void add_all(T[] values) {
+        T[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        /* Current content in key order, tombstones of count 0 dropped */
+        TreeMap<T, Integer> current = new TreeMap<>();
+        if (root != null) {
+            collect(root, current);
+        }
+
+        T[] elements = (T[]) new Comparable[current.size() + sorted.length];
+        int[] counts = new int[elements.length];
+        Map<T, Integer> totals = new HashMap<>();
+        Iterator<Map.Entry<T, Integer>> old = current.entrySet().iterator();
+        Map.Entry<T, Integer> next_old = old.hasNext() ? old.next() : null;
+        int len = 0;
+        int i = 0;
+
+        while (i < sorted.length || next_old != null) {
+            T element;
+            int count = 0;
+            if (next_old != null && (i == sorted.length || next_old.getKey().compareTo(sorted[i]) <= 0)) {
+                element = next_old.getKey();
+                count = next_old.getValue();
+                next_old = old.hasNext() ? old.next() : null;
+            } else {
+                element = sorted[i];
+            }
+            while (i < sorted.length && sorted[i].compareTo(element) == 0) {
+                count++;
+                i++;
+            }
+            if (count > 0) {
+                elements[len] = element;
+                counts[len++] = count;
+                totals.put(element, count);
+            }
+        }
+
+        node_count = 0;
+        root = (len == 0) ? null : build_balanced(elements, counts, len, 0, (len - 1) / heapSize);
+        max_node_count = node_count;
+        frequency.rebuild(totals);
+    }
+
+    /*
+     * Add every element and its occurrences stored in the subtree rooted at node
+     * to sorted
+     */
+    private void collect(bst_node<T> node, TreeMap<T, Integer> sorted) {
+        ArrayDeque<bst_node<T>> stack = new ArrayDeque<>();
+        stack.push(node);
+
+        while (!stack.isEmpty()) {
+            bst_node<T> curr = stack.pop();
+            for (int i = 1; i <= curr.data.get_curr_size(); i++) {
+                if (curr.data.get_ith_elements_occurence(i) > 0) {
+                    sorted.merge(curr.data.get_ith_element(i), curr.data.get_ith_elements_occurence(i), Integer::sum);
+                }
+            }
+            if (curr.left != null) {
+                stack.push(curr.left);
+            }
+            if (curr.right != null) {
+                stack.push(curr.right);
+            }
+        }
+    }
+
+    /*
+     * Called after add created a new leaf holding key. If the leaf is deeper than
+     * log(node count) base 1 / alpha, walk back up its path to the first ancestor
+     * whose child subtree holds more than alpha of its nodes and rebuild it.
+     */
+    private void rebalance_after_insert(T key) {
+        ArrayList<bst_node<T>> path = new ArrayList<>();
+        bst_node<T> temp = root;
+
+        while (temp != null) {
+            HeapStats.count_visit();
+            path.add(temp);
+            int cmp = HeapStats.compare(temp.data.get_ith_element(1), key);
+            if (cmp == 0) {
+                break;
+            }
+            temp = (cmp > 0) ? temp.left : temp.right;
+        }
+
+        rebalance_path(path);
+    }
+
+    /*
+     * Alpha weight check on a root to node path: only when the path is deeper
+     * than log(node count) base 1 / alpha are subtree sizes counted, and the
+     * first ancestor from the bottom that is out of balance is rebuilt
+     */
+    private void rebalance_path(List<bst_node<T>> path) {
+        int depth = path.size() - 1;
+        if (depth <= Math.log(node_count) / Math.log(1 / BALANCE_ALPHA)) {
+            return;
+        }
+
+        int child_size = count_nodes(path.get(depth));
+        for (int i = depth - 1; i >= 0; i--) {
+            bst_node<T> parent = path.get(i);
+            bst_node<T> sibling = (parent.left == path.get(i + 1)) ? parent.right : parent.left;
+            int parent_size = child_size + count_nodes(sibling) + 1;
+
+            if (child_size > BALANCE_ALPHA * parent_size) {
+                rebuild_in_place(parent);
+                return;
+            }
+            child_size = parent_size;
+        }
+    }
+
     /*
      * Helper function to insert into the bst the Heap itself which is used in
      * remove method to maintain the bst satisying the conditions. It positions that
@@ -188,16 +1139,19 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
 
     private bst_node<T> helper_insert(bst_node<T> root, HeapDistinct<T> node) {
         if (root == null) {
-            root = new bst_node<>(heapSize);
+            root = new_node();
             root.data.replace_heap(node);
+            scan_own(root);
+            refresh(root);
             return root;
         }
 
-        if (root.data.get_ith_element(1).compareTo(node.get_ith_element(1)) > 0) {
+        if (HeapStats.compare(root.data.get_ith_element(1), node.get_ith_element(1)) > 0) {
             root.left = helper_insert(root.left, node);
-        } else if (root.data.get_ith_element(1).compareTo(node.get_ith_element(1)) < 0)
+        } else if (HeapStats.compare(root.data.get_ith_element(1), node.get_ith_element(1)) < 0)
             root.right = helper_insert(root.right, node);
 
+        refresh(root);
         return root;
     }
 
@@ -208,15 +1162,15 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
         if (curr_node.get_curr_size() == 0) {
             return;
         }
-        root = helper_insert(root, curr_node);
+        this.root = helper_insert(root, curr_node);
     }
 
     private HeapDistinct<T> minnodeRST(bst_node<T> root) {
         HeapDistinct<T> min_heap = root.data;
 
         while (root.left != null) {
-            min_heap = root.data;
             root = root.left;
+            min_heap = root.data;
         }
         return min_heap;
     }
@@ -230,23 +1184,28 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
         if (root == null)
             return root;
 
-        if (root.data.get_ith_element(1).compareTo(heap.get_ith_element(1)) > 0)
+        if (HeapStats.compare(root.data.get_ith_element(1), heap.get_ith_element(1)) > 0)
             root.left = deleteNode(root.left, heap, to_remove);
-        else if (root.data.get_ith_element(1).compareTo(heap.get_ith_element(1)) < 0)
+        else if (HeapStats.compare(root.data.get_ith_element(1), heap.get_ith_element(1)) < 0)
             root.right = deleteNode(root.right, heap, to_remove);
 
         else {
 
-            if (root.left == null)
+            if (root.left == null) {
+                node_count--;
                 return root.right;
-            else if (root.right == null)
+            } else if (root.right == null) {
+                node_count--;
                 return root.left;
+            }
 
             root.data.replace_heap(minnodeRST(root.right));
 
             root.right = deleteNode(root.right, root.data, to_remove);
+            scan_own(root);
         }
 
+        refresh(root);
         return root;
 
     }
@@ -262,63 +1221,51 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
         if (root == null) {
             return root;
         }
+        HeapStats.count_visit();
 
         int Hsize = root.data.get_curr_size();
-        Comparable[] ele = new Comparable[Hsize];
         int[] idx = new int[2];
-        int itr = 0;
         boolean yes_here = root.data.search_element(element, idx);
 
-        for (int i = 1; i <= Hsize; i++) {
-            ele[itr++] = root.data.get_ith_element(i);
-        }
-
-        Arrays.sort(ele);
         /* Element is here but not a Max Element - Simply Delete */
         if (yes_here) {
-            // System.out.println("Yes there 11");
             if (idx[0] != 1) {
 
-                int pos = -1;
-                for (int i = itr - 1; i >= 0; i--) {
-                    if (ele[i].compareTo(element) == 0) {
-                        pos = itr - i;
-                        break;
-                    }
-                }
-                root.data.remove_ith_largest(pos);
+                occ[0] = root.data.remove_element(element);
 
-                boolean is_there = root.data.search_element(element, idx);
-                if (is_there) {
-                    occ[0] = root.data.get_ith_elements_occurence(idx[0]);
-                } else {
-                    occ[0] = 0;
+                root.own_total--;
+                if (occ[0] == 0 && HeapStats.compare(element, root.own_min) == 0) {
+                    scan_own(root);
                 }
-
+                refresh(root);
                 return root;
 
             } else {
                 if (root.data.get_ith_elements_occurence(1) > 1) {
                     root.data.remove_ith_largest(1);
-
-                    System.out.println();
                     occ[0] = root.data.get_ith_elements_occurence(1);
+                    root.own_total--;
+                    refresh(root);
                     return root;
                 } else {
 
                     /* Remove this whole node and insert the heap after */
 
-                    if (((root.left != null) && (itr > 1)
-                            && (root.left.data.get_ith_element(1).compareTo((T)(ele[itr - 2])) < 0))
-                            && ((root.right != null) && (itr > 1)
-                            && (root.right.data.get_ith_element(1).compareTo((T)(ele[itr - 2])) > 0))) {
+                    T second = (Hsize > 1) ? root.data.peek_ith_largest(2) : null;
+                    if (!balanced && ((root.left != null) && (Hsize > 1)
+                            && (HeapStats.compare(root.left.data.get_ith_element(1), second) < 0))
+                            && ((root.right != null) && (Hsize > 1)
+                            && (HeapStats.compare(root.right.data.get_ith_element(1), second) > 0))) {
                         root.data.remove_ith_largest(1);
                         occ[0] = 0;
+                        root.own_total--;
+                        refresh(root);
                         return root;
                     } else {
                         /* Delete this whole node and insert again */
                         occ[0] = -2;
                         h.replace_heap(root.data);
+                        to_remove[0] = root;
                         return root;
                         /* using delete node */
                     }
@@ -326,11 +1273,12 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
                 }
             }
         } else {
-            if (root.data.get_ith_element(1).compareTo(element) > 0) {
+            if (HeapStats.compare(root.data.get_ith_element(1), element) > 0) {
                 root.left = custom_remove(root.left, element, occ, to_remove, h);
             } else {
                 root.right = custom_remove(root.right, element, occ, to_remove, h);
             }
+            refresh(root);
         }
 
         return root;
@@ -340,6 +1288,24 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
      * Function to remove the element from the BST
      */
     public int remove(T element) {
+        BSTHeapTreeStats probe = stats;
+        if (probe != null) {
+            probe.begin();
+        }
+
+        boolean present = frequency.get_frequency(element) > 0;
+        int occurrences = remove_from_tree(element);
+        if (present) {
+            cancel_events(element, frequency.decrement(element));
+        }
+
+        if (probe != null) {
+            probe.end(probe.remove);
+        }
+        return occurrences;
+    }
+
+    private int remove_from_tree(T element) {
 
         if (root == null) {
             System.out.println("Binary Search Tree is Empty.");
@@ -362,6 +1328,11 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
             return -1;
         }
 
+        if (balanced) {
+            remove_balanced_max(removed_node[0]);
+            return 0;
+        }
+
         root = deleteNode(root, h, removed_node);
 
         h.remove_ith_largest(1);
@@ -370,4 +1341,245 @@ public class BSTHeapTree<T extends Comparable<T>> extends HeapDistinct<T> {
 
         return 0;
     }
-}
\ No newline at end of file
+
+    /*
+     * Balanced mode removal of a node max key that occurs once. The max is dropped
+     * and, while the largest element of the left subtree is above what is left in
+     * the node, that element is pulled up with its occurrences and in turn dropped
+     * from the rightmost node of the left subtree. Every step goes one level
+     * deeper, so this is O(depth) heap operations. A node left empty without a
+     * left child is replaced by its right child. Subtrees are only rebuilt when
+     * the alpha weight check fails, or as a whole when the tree has shrunk below
+     * alpha of its largest size.
+     */
+    private void remove_balanced_max(bst_node<T> node) {
+        T key = node.data.get_ith_element(1);
+        ArrayList<bst_node<T>> path = new ArrayList<>();
+        for (bst_node<T> curr = root; curr != node;
+             curr = (HeapStats.compare(curr.data.get_ith_element(1), key) > 0) ? curr.left : curr.right) {
+            HeapStats.count_visit();
+            path.add(curr);
+        }
+
+        int[] occ = new int[1];
+        while (true) {
+            HeapStats.count_visit();
+            node.data.remove_max_element_without_occurence(occ, 0);
+            node.own_total -= occ[0];
+            if (node.data.get_curr_size() == 0) {
+                node.own_min = null;
+            }
+
+            bst_node<T> left = node.left;
+            if (left == null || (node.data.get_curr_size() > 0
+                    && HeapStats.compare(left.subtree_max, node.data.peek_max()) < 0)) {
+                break;
+            }
+
+            /* The rightmost node of the left subtree holds its largest element as key */
+            path.add(node);
+            bst_node<T> holder = left;
+            while (holder.right != null) {
+                HeapStats.count_visit();
+                path.add(holder);
+                holder = holder.right;
+            }
+
+            T pulled = holder.data.peek_max();
+            int count = holder.data.get_ith_elements_occurence(1);
+            int[] idx = new int[1];
+            node.data.insert_to_heap(pulled);
+            node.data.search_element(pulled, idx);
+            node.data.set_ith_elements_occurence(idx[0], count);
+            node.own_total += count;
+            node.own_min = lower(node.own_min, pulled);
+
+            node = holder;
+        }
+
+        if (node.data.get_curr_size() == 0) {
+            /* Left child is null here, otherwise its max would have been pulled up */
+            bst_node<T> parent = path.isEmpty() ? null : path.get(path.size() - 1);
+            if (parent == null) {
+                root = node.right;
+            } else if (parent.left == node) {
+                parent.left = node.right;
+            } else {
+                parent.right = node.right;
+            }
+            node_count--;
+            if (node.right != null) {
+                path.add(node.right);
+            }
+        } else {
+            refresh(node);
+            path.add(node);
+        }
+        for (int i = path.size() - 1; i >= 0; i--) {
+            refresh(path.get(i));
+        }
+
+        if (root != null && node_count < BALANCE_ALPHA * max_node_count) {
+            rebuild_in_place(root);
+            max_node_count = node_count;
+        } else if (root != null) {
+            rebalance_path(path);
+        }
+    }
+
+    /*
+     * Write the tree to path as a compact little endian snapshot: a header with
+     * the heap size, the node modes and the node count, then every node in
+     * preorder as a child flag byte, its heap size and its element, occurrence
+     * pairs in heap array order. Elements are encoded by codec.
+     */
+    public void save(Path path, ElementCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer out = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+            out.putInt(SNAPSHOT_MAGIC);
+            out.putInt(SNAPSHOT_VERSION);
+            out.putInt(heapSize);
+            out.put((byte) ((indexed_nodes ? 1 : 0) | (balanced ? 2 : 0)));
+            out.putInt(node_count);
+
+            /* Explicit stack so an unbalanced tree cannot overflow the call stack */
+            Deque<bst_node<T>> stack = new ArrayDeque<>();
+            if (root != null) {
+                stack.push(root);
+            }
+            while (!stack.isEmpty()) {
+                bst_node<T> node = stack.pop();
+                HeapDistinct<T> h = node.data;
+
+                out = ensure_room(channel, out, 1 + Integer.BYTES);
+                out.put((byte) ((node.left != null ? SNAPSHOT_HAS_LEFT : 0)
+                        | (node.right != null ? SNAPSHOT_HAS_RIGHT : 0)));
+                out.putInt(h.get_curr_size());
+
+                for (int i = 1; i <= h.get_curr_size(); i++) {
+                    T element = h.get_ith_element(i);
+                    out = ensure_room(channel, out, codec.size_of(element) + Integer.BYTES);
+                    codec.write(out, element);
+                    out.putInt(h.get_ith_elements_occurence(i));
+                }
+
+                if (node.right != null) {
+                    stack.push(node.right);
+                }
+                if (node.left != null) {
+                    stack.push(node.left);
+                }
+            }
+
+            flush(channel, out);
+        }
+    }
+
+    /*
+     * Read a snapshot written by save. The file is memory mapped and the node
+     * heaps are filled as stored, so nothing is compared or heapified again; only
+     * the frequency buckets are rebuilt from the stored occurrences.
+     */
+    public static <T extends Comparable<T>> BSTHeapTree<T> load(Path path, ElementCodec<T> codec)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            try {
+                if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != SNAPSHOT_VERSION) {
+                    throw new IOException("Not a BSTHeapTree snapshot");
+                }
+                int heapSize = in.getInt();
+                byte modes = in.get();
+                int nodes = in.getInt();
+
+                BSTHeapTree<T> tree = new BSTHeapTree<>(heapSize, (modes & 1) != 0, (modes & 2) != 0);
+                T[] elements = (T[]) new Comparable[heapSize];
+                int[] counts = new int[heapSize];
+                Map<T, Integer> totals = new HashMap<>();
+
+                /* Slots still to fill in preorder, each a parent and the side to attach to */
+                Deque<bst_node<T>> parents = new ArrayDeque<>();
+                Deque<Boolean> sides = new ArrayDeque<>();
+                List<bst_node<T>> order = new ArrayList<>();
+
+                for (int n = 0; n < nodes; n++) {
+                    int flags = in.get();
+                    int size = in.getInt();
+                    if (size < 0 || size > heapSize) {
+                        throw new IOException("Corrupt snapshot node size " + size);
+                    }
+
+                    for (int i = 0; i < size; i++) {
+                        elements[i] = codec.read(in);
+                        counts[i] = in.getInt();
+                        totals.merge(elements[i], counts[i], Integer::sum);
+                    }
+
+                    bst_node<T> node = tree.new_node();
+                    node.data.restore_heap(elements, counts, size);
+                    order.add(node);
+
+                    if (n == 0) {
+                        tree.root = node;
+                    } else if (parents.isEmpty()) {
+                        throw new IOException("Corrupt snapshot tree shape");
+                    } else if (sides.pop()) {
+                        parents.pop().left = node;
+                    } else {
+                        parents.pop().right = node;
+                    }
+
+                    if ((flags & SNAPSHOT_HAS_RIGHT) != 0) {
+                        parents.push(node);
+                        sides.push(false);
+                    }
+                    if ((flags & SNAPSHOT_HAS_LEFT) != 0) {
+                        parents.push(node);
+                        sides.push(true);
+                    }
+                }
+                if (!parents.isEmpty()) {
+                    throw new IOException("Corrupt snapshot tree shape");
+                }
+
+                /* Children come after their parent in preorder, refresh the aggregates backwards */
+                for (int n = order.size() - 1; n >= 0; n--) {
+                    tree.scan_own(order.get(n));
+                    tree.refresh(order.get(n));
+                }
+
+                tree.frequency.rebuild(totals);
+                return tree;
+            } catch (java.nio.BufferUnderflowException e) {
+                throw new IOException("Truncated snapshot", e);
+            }
+        }
+    }
+
+    /* Flush out to channel when fewer than bytes are left, growing it for an oversized element */
+    private static ByteBuffer ensure_room(FileChannel channel, ByteBuffer out, int bytes) throws IOException {
+        if (out.remaining() >= bytes) {
+            return out;
+        }
+        flush(channel, out);
+        if (out.capacity() < bytes) {
+            return ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return out;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+}
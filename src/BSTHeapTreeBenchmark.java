@@ -0,0 +1,315 @@
+/*
+ * BSTHeapTreeBenchmark
+ * Regression benchmark for Heap, HeapDistinct and BSTHeapTree over data sizes, node heap sizes and key
+ * distributions (uniform, sorted and Zipfian). Every case is warmed up and then measured several times on fresh
+ * state, and the median ns/op is printed as one tab separated line per case so runs can be diffed. Data sizes
+ * can be passed as arguments, for example: java BSTHeapTreeBenchmark 10000 1000000
+ */
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+public class BSTHeapTreeBenchmark {
+
+    private static final int WARMUP = 3;
+    private static final int MEASURE = 5;
+    private static final int[] DEFAULT_SIZES = { 1_000, 10_000 };
+    private static final int[] HEAP_SIZES = { 4, 16, 64, 256 };
+    private static final String[] DISTRIBUTIONS = { "uniform", "sorted", "zipfian" };
+
+    /* Zipf exponent, 1.0 gives the classic word frequency shape */
+    private static final double ZIPF_S = 1.0;
+
+    private static long sink;
+
+    /* Heap with the handles of its elements in insertion order */
+    private static final class handled_heap {
+        final Heap<Integer> heap;
+        final int[] handles;
+
+        handled_heap(Heap<Integer> heap, int[] handles) {
+            this.heap = heap;
+            this.handles = handles;
+        }
+    }
+
+    /* n keys drawn from the named distribution over about n distinct values */
+    public static int[] keys(String distribution, int n, Random random) {
+        int[] keys = new int[n];
+
+        switch (distribution) {
+            case "uniform":
+                for (int i = 0; i < n; i++) {
+                    keys[i] = random.nextInt(n);
+                }
+                break;
+            case "sorted":
+                for (int i = 0; i < n; i++) {
+                    keys[i] = i;
+                }
+                break;
+            case "zipfian":
+                /* Rank r is drawn with weight 1 / r^s, ranks are mapped to shuffled keys */
+                double[] cumulative = new double[n];
+                double total = 0;
+                for (int r = 0; r < n; r++) {
+                    total += 1 / Math.pow(r + 1, ZIPF_S);
+                    cumulative[r] = total;
+                }
+                int[] key_of_rank = new int[n];
+                for (int r = 0; r < n; r++) {
+                    key_of_rank[r] = r;
+                }
+                shuffle(key_of_rank, random);
+                for (int i = 0; i < n; i++) {
+                    int r = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                    keys[i] = key_of_rank[Math.min(n - 1, r < 0 ? -r - 1 : r)];
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution " + distribution);
+        }
+        return keys;
+    }
+
+    private static void shuffle(int[] a, Random random) {
+        for (int i = a.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = a[i];
+            a[i] = a[j];
+            a[j] = t;
+        }
+    }
+
+    private static Integer[] boxed(int[] keys, int from, int to) {
+        Integer[] result = new Integer[to - from];
+        for (int i = from; i < to; i++) {
+            result[i - from] = keys[i];
+        }
+        return result;
+    }
+
+    /*
+     * Run setup outside the clock and body inside it, WARMUP times unreported and
+     * MEASURE times reported as the median nanoseconds per operation
+     */
+    private static <S> void measure(String name, String params, int ops, Supplier<S> setup, ToLongFunction<S> body) {
+        long[] samples = new long[MEASURE];
+
+        for (int i = 0; i < WARMUP + MEASURE; i++) {
+            S state = setup.get();
+            long start = System.nanoTime();
+            sink += body.applyAsLong(state);
+            long elapsed = System.nanoTime() - start;
+            if (i >= WARMUP) {
+                samples[i - WARMUP] = elapsed;
+            }
+        }
+
+        Arrays.sort(samples);
+        System.out.printf("%-36s %-40s %12.1f ns/op%n", name, params, (double) samples[MEASURE / 2] / ops);
+    }
+
+    private static void bench_heap(String distribution, int[] keys) {
+        int n = keys.length;
+        String params = "n=" + n + "\t" + distribution;
+        Integer[] all = boxed(keys, 0, n);
+
+        measure("Heap.insert_to_heap", params, n, () -> new Heap<Integer>(n), h -> {
+            for (int key : keys) {
+                h.insert_to_heap(key);
+            }
+            return h.get_curr_size();
+        });
+
+        measure("Heap.remove_max_element", params, n, () -> new Heap<>(all, n), h -> {
+            long sum = 0;
+            while (h.get_curr_size() > 0) {
+                sum += h.remove_max_element();
+            }
+            return sum;
+        });
+
+        int removals = Math.max(1, n / 10);
+        measure("Heap.remove_ith_largest", params, removals, () -> new Heap<>(all, n), h -> {
+            long sum = 0;
+            for (int i = 0; i < removals; i++) {
+                sum += h.remove_ith_largest(1 + i % 16);
+            }
+            return sum;
+        });
+
+        /* Top tenth in descending order, lazily against copying and draining the heap */
+        int top = Math.max(1, n / 10);
+        Heap<Integer> full = new Heap<>(all, n);
+        measure("Heap.sorted_iterator", params, top, () -> full, h -> {
+            long sum = 0;
+            Iterator<Integer> it = h.sorted_iterator();
+            for (int i = 0; i < top; i++) {
+                sum += it.next();
+            }
+            return sum;
+        });
+
+        measure("Heap.copy+remove_max_element", params, top, () -> full, h -> {
+            Heap<Integer> copy = new Heap<>(n);
+            copy.merge_heaps(h);
+            long sum = 0;
+            for (int i = 0; i < top; i++) {
+                sum += copy.remove_max_element();
+            }
+            return sum;
+        });
+
+        /* Reprioritise arbitrary elements in place through their handles */
+        int updates = Math.max(1, n / 10);
+        measure("Heap.update_priority", params, updates, () -> {
+            Heap<Integer> h = new Heap<>(n);
+            int[] handles = new int[n];
+            for (int i = 0; i < n; i++) {
+                handles[i] = h.insert_with_handle(keys[i]);
+            }
+            return new handled_heap(h, handles);
+        }, state -> {
+            for (int i = 0; i < updates; i++) {
+                state.heap.update_priority(state.handles[(i * 7919) % n], keys[(i * 31) % n]);
+            }
+            return state.heap.peek_max();
+        });
+
+        Integer[] first = boxed(keys, 0, n / 2);
+        Integer[] second = boxed(keys, n / 2, n);
+        measure("Heap.merge_heaps", params, n, () -> {
+            Heap<Integer> h = new Heap<>(n);
+            h.build_heap(first, first.length);
+            return Arrays.asList(h, new Heap<>(second, second.length));
+        }, pair -> {
+            pair.get(0).merge_heaps(pair.get(1));
+            return pair.get(0).get_curr_size();
+        });
+    }
+
+    private static void bench_distinct(String distribution, int[] keys) {
+        int n = keys.length;
+        String params = "n=" + n + "\t" + distribution;
+        Integer[] all = boxed(keys, 0, n);
+
+        /* Indexed, the unindexed duplicate scan is quadratic and would dominate every other case */
+        Supplier<HeapDistinct<Integer>> filled = () -> {
+            HeapDistinct<Integer> h = new HeapDistinct<>(n, true);
+            h.build_heap(all, n);
+            return h;
+        };
+
+        measure("HeapDistinct.insert_to_heap", params, n, () -> new HeapDistinct<Integer>(n, true), h -> {
+            for (int key : keys) {
+                h.insert_to_heap(key);
+            }
+            return h.get_curr_size();
+        });
+
+        measure("HeapDistinct.remove_ith_largest(1)", params, n, filled, h -> {
+            long sum = 0;
+            while (h.get_curr_size() > 0) {
+                sum += h.remove_ith_largest(1);
+            }
+            return sum;
+        });
+
+        int removals = Math.max(1, n / 10);
+        measure("HeapDistinct.remove_ith_largest", params, removals, filled, h -> {
+            long sum = 0;
+            for (int i = 0; i < removals && h.get_curr_size() > 0; i++) {
+                sum += h.remove_ith_largest(1 + i % Math.min(16, h.get_curr_size()));
+            }
+            return sum;
+        });
+
+        Integer[] first = boxed(keys, 0, n / 2);
+        Integer[] second = boxed(keys, n / 2, n);
+        measure("HeapDistinct.merge_heaps", params, n, () -> {
+            HeapDistinct<Integer> h = new HeapDistinct<>(n, true);
+            HeapDistinct<Integer> other = new HeapDistinct<>(second.length, true);
+            h.build_heap(first, first.length);
+            other.build_heap(second, second.length);
+            return Arrays.asList(h, other);
+        }, pair -> {
+            pair.get(0).merge_heaps(pair.get(1));
+            return pair.get(0).get_curr_size();
+        });
+    }
+
+    private static void bench_tree(String distribution, int[] keys, int heap_size, boolean balanced) {
+        int n = keys.length;
+        String params = "n=" + n + "\t" + distribution + "\theapSize=" + heap_size + (balanced ? "\tbalanced" : "");
+        int[] probes = keys.clone();
+        shuffle(probes, new Random(n));
+
+        Supplier<BSTHeapTree<Integer>> filled = () -> {
+            BSTHeapTree<Integer> t = new BSTHeapTree<>(heap_size, true, balanced);
+            for (int key : keys) {
+                t.add(key);
+            }
+            return t;
+        };
+
+        measure("BSTHeapTree.add", params, n, () -> new BSTHeapTree<Integer>(heap_size, true, balanced), t -> {
+            for (int key : keys) {
+                t.add(key);
+            }
+            return t.get_node_count();
+        });
+
+        measure("BSTHeapTree.find", params, n, filled, t -> {
+            long sum = 0;
+            for (int key : probes) {
+                sum += t.find(key);
+            }
+            return sum;
+        });
+
+        measure("BSTHeapTree.remove", params, n, filled, t -> {
+            long sum = 0;
+            for (int key : probes) {
+                sum += t.remove(key);
+            }
+            return sum;
+        });
+
+        measure("BSTHeapTree.find_mode", params, n, filled, t -> {
+            long sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += t.find_mode();
+            }
+            return sum;
+        });
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = DEFAULT_SIZES;
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int n : sizes) {
+            for (String distribution : DISTRIBUTIONS) {
+                int[] keys = keys(distribution, n, new Random(42));
+
+                bench_heap(distribution, keys);
+                bench_distinct(distribution, keys);
+                for (int heap_size : HEAP_SIZES) {
+                    /* Sorted input turns the unbalanced tree into a list, only the balanced mode is measured */
+                    if (!distribution.equals("sorted")) {
+                        bench_tree(distribution, keys, heap_size, false);
+                    }
+                    bench_tree(distribution, keys, heap_size, true);
+                }
+            }
+        }
+        System.out.println("checksum " + sink);
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * BSTHeapTreeOperationMXBean
+ * Counters and latency histogram of one BSTHeapTree operation (add, find or remove) since the last reset.
+ */
+
+public interface BSTHeapTreeOperationMXBean {
+
+    long getCount();
+
+    double getComparesPerOp();
+
+    double getSwapsPerOp();
+
+    double getNodeVisitsPerOp();
+
+    long getMaxNodeVisits();
+
+    /* Entry b counts operations that took less than 2^b nanoseconds and at least 2^(b-1) */
+    long[] getLatencyHistogram();
+
+    long getLatencyP50Nanos();
+
+    long getLatencyP99Nanos();
+
+    void reset();
+}
@@ -0,0 +1,259 @@
+/*
+ * BSTHeapTreeStats
+ * Per tree instrumentation attached with BSTHeapTree.enable_stats. Every add, find and remove is timed into a
+ * log2 latency histogram together with the compareTo calls, swaps and nodes visited it took, and the tree shape
+ * (depth, node count, fill ratio of the node heaps) is read on demand. Everything is published as MXBeans under
+ * the BSTHeapTree domain and each operation is also emitted as a JFR event while a recording has it enabled.
+ *
+ * Latencies and operation counts are recorded whenever stats are attached. The compare, swap and visit counts
+ * come from HeapStats and stay 0 unless the JVM runs with -Dbstheap.stats=true.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class BSTHeapTreeStats implements BSTHeapTreeStatsMXBean {
+
+    @Name("BSTHeapTree.Operation")
+    @Label("BSTHeapTree Operation")
+    @Category("BSTHeapTree")
+    static class operation_event extends Event {
+        @Label("Tree")
+        String tree;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Latency")
+        @Timespan(Timespan.NANOSECONDS)
+        long latency;
+
+        @Label("Compares")
+        long compares;
+
+        @Label("Swaps")
+        long swaps;
+
+        @Label("Node Visits")
+        long visits;
+    }
+
+    public static class operation_stats implements BSTHeapTreeOperationMXBean {
+        private final String tree;
+        private final String operation;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder compares = new LongAdder();
+        private final LongAdder swaps = new LongAdder();
+        private final LongAdder visits = new LongAdder();
+        private final LongAccumulator max_visits = new LongAccumulator(Long::max, 0);
+        private final AtomicLongArray histogram = new AtomicLongArray(Long.SIZE + 1);
+
+        operation_stats(String tree, String operation) {
+            this.tree = tree;
+            this.operation = operation;
+        }
+
+        void record(long nanos, long op_compares, long op_swaps, long op_visits) {
+            count.increment();
+            compares.add(op_compares);
+            swaps.add(op_swaps);
+            visits.add(op_visits);
+            max_visits.accumulate(op_visits);
+            histogram.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+
+            operation_event event = new operation_event();
+            if (event.isEnabled()) {
+                event.tree = tree;
+                event.operation = operation;
+                event.latency = nanos;
+                event.compares = op_compares;
+                event.swaps = op_swaps;
+                event.visits = op_visits;
+                event.commit();
+            }
+        }
+
+        private double per_op(LongAdder total) {
+            long n = count.sum();
+            return (n == 0) ? 0 : (double) total.sum() / n;
+        }
+
+        /* Upper bound of the histogram bucket holding the given fraction of operations */
+        private long percentile(double fraction) {
+            long[] buckets = getLatencyHistogram();
+            long total = 0;
+            for (long b : buckets) {
+                total += b;
+            }
+            long seen = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                seen += buckets[b];
+                if (seen > 0 && seen >= fraction * total) {
+                    return (b >= Long.SIZE - 1) ? Long.MAX_VALUE : 1L << b;
+                }
+            }
+            return 0;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getComparesPerOp() {
+            return per_op(compares);
+        }
+
+        public double getSwapsPerOp() {
+            return per_op(swaps);
+        }
+
+        public double getNodeVisitsPerOp() {
+            return per_op(visits);
+        }
+
+        public long getMaxNodeVisits() {
+            return max_visits.get();
+        }
+
+        public long[] getLatencyHistogram() {
+            long[] result = new long[histogram.length()];
+            for (int b = 0; b < result.length; b++) {
+                result[b] = histogram.get(b);
+            }
+            return result;
+        }
+
+        public long getLatencyP50Nanos() {
+            return percentile(0.5);
+        }
+
+        public long getLatencyP99Nanos() {
+            return percentile(0.99);
+        }
+
+        public void reset() {
+            count.reset();
+            compares.reset();
+            swaps.reset();
+            visits.reset();
+            max_visits.reset();
+            for (int b = 0; b < histogram.length(); b++) {
+                histogram.set(b, 0);
+            }
+        }
+    }
+
+    private final BSTHeapTree<?> tree;
+    private final String name;
+    public final operation_stats add;
+    public final operation_stats find;
+    public final operation_stats remove;
+
+    /* Counter values and start time of the operation in progress on this thread */
+    private static final ThreadLocal<long[]> MARK = ThreadLocal.withInitial(() -> new long[4]);
+
+    BSTHeapTreeStats(BSTHeapTree<?> tree, String name) {
+        this.tree = tree;
+        this.name = name;
+        this.add = new operation_stats(name, "add");
+        this.find = new operation_stats(name, "find");
+        this.remove = new operation_stats(name, "remove");
+    }
+
+    /* Remember where the counters of this thread stand before an operation */
+    void begin() {
+        long[] mark = MARK.get();
+        long[] counters = HeapStats.counters();
+        mark[HeapStats.COMPARES] = counters[HeapStats.COMPARES];
+        mark[HeapStats.SWAPS] = counters[HeapStats.SWAPS];
+        mark[HeapStats.VISITS] = counters[HeapStats.VISITS];
+        mark[3] = System.nanoTime();
+    }
+
+    /* Record the operation started by the last begin on this thread */
+    void end(operation_stats op) {
+        long nanos = System.nanoTime();
+        long[] mark = MARK.get();
+        long[] counters = HeapStats.counters();
+        op.record(nanos - mark[3], counters[HeapStats.COMPARES] - mark[HeapStats.COMPARES],
+                counters[HeapStats.SWAPS] - mark[HeapStats.SWAPS], counters[HeapStats.VISITS] - mark[HeapStats.VISITS]);
+    }
+
+    private ObjectName tree_name() throws JMException {
+        return new ObjectName("BSTHeapTree:type=Tree,name=" + ObjectName.quote(name));
+    }
+
+    private ObjectName operation_name(operation_stats op) throws JMException {
+        return new ObjectName("BSTHeapTree:type=Operation,name=" + ObjectName.quote(name) + ",operation=" + op.operation);
+    }
+
+    /* Publish the tree and operation MXBeans on the platform MBean server */
+    void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, tree_name());
+            for (operation_stats op : new operation_stats[] { add, find, remove }) {
+                server.registerMBean(op, operation_name(op));
+            }
+        } catch (JMException e) {
+            unregister();
+            throw new IllegalStateException("Cannot register stats of " + name, e);
+        }
+    }
+
+    void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(tree_name())) {
+                server.unregisterMBean(tree_name());
+            }
+            for (operation_stats op : new operation_stats[] { add, find, remove }) {
+                if (server.isRegistered(operation_name(op))) {
+                    server.unregisterMBean(operation_name(op));
+                }
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister stats of " + name, e);
+        }
+    }
+
+    public String get_name() {
+        return name;
+    }
+
+    /*
+     * Height of the tree. This walks every node, and the tree is not thread safe,
+     * so a read racing a structural change of the tree returns -1.
+     */
+    public int getDepth() {
+        try {
+            return tree.get_height();
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    public int getNodeCount() {
+        return tree.get_node_count();
+    }
+
+    public long getDistinctElements() {
+        return tree.frequency.get_distinct_count();
+    }
+
+    /* Share of node heap slots in use, low values mean many half empty nodes */
+    public double getFillRatio() {
+        long slots = (long) tree.get_node_count() * tree.heapSize;
+        return (slots == 0) ? 0 : Math.min(1.0, (double) getDistinctElements() / slots);
+    }
+}
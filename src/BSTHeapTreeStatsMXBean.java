@@ -0,0 +1,15 @@
+/*
+ * BSTHeapTreeStatsMXBean
+ * Shape of an instrumented BSTHeapTree, read from the tree when an attribute is read.
+ */
+
+public interface BSTHeapTreeStatsMXBean {
+
+    int getDepth();
+
+    int getNodeCount();
+
+    long getDistinctElements();
+
+    double getFillRatio();
+}
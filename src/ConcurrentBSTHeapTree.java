@@ -0,0 +1,278 @@
+/*
+ * ConcurrentBSTHeapTree
+ * Thread safe variant of BSTHeapTree. Every bst node carries its own read/write lock so finds run in parallel
+ * and adds or removes in different nodes never contend.
+ *
+ * Nodes are never unlinked or re-keyed: removing the last occurrence of an element leaves it in its node with
+ * an occurrence count of 0. A full node therefore keeps the same max key and children forever, so a thread only
+ * has to hold the lock of the node it is looking at while it walks down, and mutations only take the write
+ * lock of the single node they change.
+ *
+ * The price is memory: tombstones are only reused when their own element comes back, so a stream of distinct
+ * elements that are added and removed makes the tree grow without bound. get_tombstone_count tells how many
+ * there are, and compact rebuilds the tree without them while no other thread is using it.
+ */
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class ConcurrentBSTHeapTree<T extends Comparable<T>> {
+
+    public static class bst_node<T extends Comparable<T>> {
+        protected volatile bst_node<T> left;
+        protected volatile bst_node<T> right;
+
+        private final HeapDistinct<T> data;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        public bst_node(int heapSize) {
+            left = right = null;
+            data = new HeapDistinct<>(heapSize);
+        }
+    }
+
+    private final bst_node<T> root;
+    private final int heapSize;
+    private final AtomicInteger node_count = new AtomicInteger(1);
+    private final AtomicInteger tombstones = new AtomicInteger();
+
+    public ConcurrentBSTHeapTree(int heapSize) {
+        this.heapSize = heapSize;
+        root = new bst_node<>(heapSize);
+    }
+
+    /*
+     * Get number of heap nodes in the tree
+     */
+    public int get_node_count() {
+        return node_count.get();
+    }
+
+    /*
+     * Get number of elements left in their nodes with 0 occurrences
+     */
+    public int get_tombstone_count() {
+        return tombstones.get();
+    }
+
+    /*
+     * Child to follow from a full node for element, only called with the node lock held
+     */
+    private bst_node<T> next_node(bst_node<T> node, T element) {
+        return (node.data.get_ith_element(1).compareTo(element) > 0) ? node.left : node.right;
+    }
+
+    /*
+     * Whether element can be added to node without going further down, only
+     * called with the node lock held
+     */
+    private boolean belongs_here(bst_node<T> node, T element, int[] idx) {
+        return node.data.search_element(element, idx) || node.data.get_curr_size() < heapSize
+                || next_node(node, element) == null;
+    }
+
+    /*
+     * Walks down with read locks to the node where element is stored or would be
+     * stored and returns it with its write lock held
+     */
+    private bst_node<T> lock_target(T element, int[] idx) {
+        bst_node<T> temp = root;
+
+        while (true) {
+            ReentrantReadWriteLock.ReadLock read = temp.lock.readLock();
+            read.lock();
+            boolean here;
+            bst_node<T> next;
+            try {
+                here = belongs_here(temp, element, idx);
+                next = here ? null : next_node(temp, element);
+            } finally {
+                read.unlock();
+            }
+
+            if (!here) {
+                temp = next;
+                continue;
+            }
+
+            /* Re-check under the write lock, another thread may have filled the node or linked the child */
+            temp.lock.writeLock().lock();
+            if (belongs_here(temp, element, idx)) {
+                return temp;
+            }
+            next = next_node(temp, element);
+            temp.lock.writeLock().unlock();
+            temp = next;
+        }
+    }
+
+    /*
+     * Add element to the tree. If already there then increases the occurrences.
+     * Returns the occurrences after adding.
+     */
+    public int add(T element) {
+        return add(element, 1);
+    }
+
+    /* Add count occurrences of element at once */
+    private int add(T element, int count) {
+        int[] idx = new int[2];
+        bst_node<T> temp = lock_target(element, idx);
+
+        try {
+            if (temp.data.search_element(element, idx)) {
+                int occ = temp.data.get_ith_elements_occurence(idx[0]);
+                temp.data.set_ith_elements_occurence(idx[0], occ + count);
+                if (occ == 0) {
+                    tombstones.decrementAndGet();
+                }
+                return occ + count;
+            }
+
+            if (temp.data.get_curr_size() < heapSize) {
+                temp.data.insert_to_heap(element);
+                if (count > 1) {
+                    temp.data.search_element(element, idx);
+                    temp.data.set_ith_elements_occurence(idx[0], count);
+                }
+                return count;
+            }
+
+            /* Full node without the child on element's side, link a new one */
+            bst_node<T> child = new bst_node<>(heapSize);
+            child.data.insert_to_heap(element);
+            if (count > 1) {
+                child.data.set_ith_elements_occurence(1, count);
+            }
+            if (temp.data.get_ith_element(1).compareTo(element) > 0) {
+                temp.left = child;
+            } else {
+                temp.right = child;
+            }
+            node_count.incrementAndGet();
+            return count;
+        } finally {
+            temp.lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Finds the occurrences of element, -1 if it is not in the tree
+     */
+    public int find(T element) {
+        int[] idx = new int[2];
+        bst_node<T> temp = root;
+
+        while (temp != null) {
+            ReentrantReadWriteLock.ReadLock read = temp.lock.readLock();
+            read.lock();
+            try {
+                if (temp.data.search_element(element, idx)) {
+                    int occ = temp.data.get_ith_elements_occurence(idx[0]);
+                    return (occ > 0) ? occ : -1;
+                }
+                if (temp.data.get_curr_size() < heapSize) {
+                    return -1;
+                }
+                temp = next_node(temp, element);
+            } finally {
+                read.unlock();
+            }
+        }
+        return -1;
+    }
+
+    /*
+     * Removes one occurrence of element and returns the occurrences left, -1 if
+     * it is not in the tree
+     */
+    public int remove(T element) {
+        int[] idx = new int[2];
+        bst_node<T> temp = lock_target(element, idx);
+
+        try {
+            if (!temp.data.search_element(element, idx)) {
+                return -1;
+            }
+            int occ = temp.data.get_ith_elements_occurence(idx[0]);
+            if (occ == 0) {
+                return -1;
+            }
+            temp.data.set_ith_elements_occurence(idx[0], occ - 1);
+            if (occ == 1) {
+                tombstones.incrementAndGet();
+            }
+            return occ - 1;
+        } finally {
+            temp.lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Rebuild the tree without its tombstones. The elements are added back in
+     * preorder with their occurrences, so the tree keeps roughly its shape. Not
+     * thread safe: no other thread may use the tree while it runs.
+     */
+    public void compact() {
+        List<T> elements = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        ArrayDeque<bst_node<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            bst_node<T> node = stack.pop();
+            for (int i = 1; i <= node.data.get_curr_size(); i++) {
+                int occ = node.data.get_ith_elements_occurence(i);
+                if (occ > 0) {
+                    elements.add(node.data.get_ith_element(i));
+                    counts.add(occ);
+                }
+            }
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+        }
+
+        root.data.replace_heap(new HeapDistinct<>(heapSize));
+        root.left = root.right = null;
+        node_count.set(1);
+        tombstones.set(0);
+
+        for (int i = 0; i < elements.size(); i++) {
+            add(elements.get(i), counts.get(i));
+        }
+    }
+
+    /*
+     * Highest occurrence count in the tree. Every node is read under its own read
+     * lock, so concurrent updates may or may not be reflected.
+     */
+    public int find_mode() {
+        int mode = 0;
+        ArrayDeque<bst_node<T>> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while (!stack.isEmpty()) {
+            bst_node<T> node = stack.pop();
+            node.lock.readLock().lock();
+            try {
+                for (int i = 1; i <= node.data.get_curr_size(); i++) {
+                    mode = Math.max(mode, node.data.get_ith_elements_occurence(i));
+                }
+            } finally {
+                node.lock.readLock().unlock();
+            }
+            if (node.left != null) {
+                stack.push(node.left);
+            }
+            if (node.right != null) {
+                stack.push(node.right);
+            }
+        }
+        return mode;
+    }
+}
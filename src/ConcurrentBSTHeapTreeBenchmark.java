@@ -0,0 +1,180 @@
+/*
+ * ConcurrentBSTHeapTreeBenchmark
+ * Stress checks ConcurrentBSTHeapTree under many threads and measures how its throughput scales from 1 to N
+ * threads compared to a balanced BSTHeapTree behind a single lock.
+ */
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentBSTHeapTreeBenchmark {
+
+    private static final int HEAP_SIZE = 7;
+    private static final int KEY_RANGE = 100_000;
+    private static final int OPS_PER_THREAD = 400_000;
+
+    /* The operations a benchmark thread runs, so both trees go through the same loop */
+    private interface TreeOps {
+        int add(int key);
+
+        int find(int key);
+
+        int remove(int key);
+    }
+
+    private static void run_threads(int threads, Runnable[] tasks) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(tasks[t]);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+    }
+
+    /*
+     * Every thread adds each key of its share a few times and removes it once,
+     * all shares overlap, so the expected count of every key is known exactly
+     */
+    private static boolean stress(int threads) throws InterruptedException {
+        final int keys = 20_000;
+        final int adds = 3;
+        ConcurrentBSTHeapTree<Integer> tree = new ConcurrentBSTHeapTree<>(HEAP_SIZE);
+        Runnable[] tasks = new Runnable[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            tasks[t] = () -> {
+                List<Integer> order = new ArrayList<>();
+                for (int k = 0; k < keys; k++) {
+                    order.add(k);
+                }
+                Collections.shuffle(order, new Random(seed));
+                for (int k : order) {
+                    for (int a = 0; a < adds; a++) {
+                        tree.add(k);
+                    }
+                    tree.remove(k);
+                    tree.find(k);
+                }
+            };
+        }
+        run_threads(threads, tasks);
+
+        for (int k = 0; k < keys; k++) {
+            if (tree.find(k) != threads * (adds - 1)) {
+                System.out.println("Stress check failed for " + k + " : " + tree.find(k));
+                return false;
+            }
+        }
+        return tree.find_mode() == threads * (adds - 1);
+    }
+
+    /* 80% find, 15% add and 5% remove on uniformly random keys, returns operations per second */
+    private static double throughput(int threads, TreeOps ops) throws InterruptedException {
+        AtomicLong checksum = new AtomicLong();
+        Runnable[] tasks = new Runnable[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final long seed = 31 * t + 7;
+            tasks[t] = () -> {
+                Random r = new Random(seed);
+                long sum = 0;
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    int key = r.nextInt(KEY_RANGE);
+                    int op = r.nextInt(100);
+                    if (op < 80) {
+                        sum += ops.find(key);
+                    } else if (op < 95) {
+                        sum += ops.add(key);
+                    } else {
+                        sum += ops.remove(key);
+                    }
+                }
+                checksum.addAndGet(sum);
+            };
+        }
+
+        long start = System.nanoTime();
+        run_threads(threads, tasks);
+        return (double) threads * OPS_PER_THREAD / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /* Every other key in random order, so neither tree degenerates into a list */
+    private static int[] prefill_keys() {
+        int[] keys = new int[KEY_RANGE / 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 2 * i;
+        }
+        Random r = new Random(1);
+        for (int i = keys.length - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            int tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+        return keys;
+    }
+
+    private static TreeOps concurrent_tree() {
+        ConcurrentBSTHeapTree<Integer> tree = new ConcurrentBSTHeapTree<>(HEAP_SIZE);
+        for (int k : prefill_keys()) {
+            tree.add(k);
+        }
+        return new TreeOps() {
+            public int add(int key) {
+                return tree.add(key);
+            }
+
+            public int find(int key) {
+                return tree.find(key);
+            }
+
+            public int remove(int key) {
+                return tree.remove(key);
+            }
+        };
+    }
+
+    private static TreeOps locked_tree() {
+        BSTHeapTree<Integer> tree = new BSTHeapTree<>(HEAP_SIZE, false, true);
+        for (int k : prefill_keys()) {
+            tree.add(k);
+        }
+        return new TreeOps() {
+            public synchronized int add(int key) {
+                return tree.add(key);
+            }
+
+            public synchronized int find(int key) {
+                return tree.find(key);
+            }
+
+            /* Only removes keys that are present, BSTHeapTree.remove prints on misses */
+            public synchronized int remove(int key) {
+                return (tree.find(key) > 0) ? tree.remove(key) : -1;
+            }
+        };
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int max_threads = Math.max(8, 2 * cores);
+
+        System.out.println("Stress check with " + max_threads + " threads : "
+                + (stress(max_threads) ? "passed" : "FAILED"));
+
+        /* Warm up */
+        throughput(2, concurrent_tree());
+        throughput(2, locked_tree());
+
+        System.out.println("Throughput on " + cores + " cores (ops/s) :");
+        System.out.printf("%8s %16s %16s%n", "threads", "per node locks", "single lock");
+        for (int threads = 1; threads <= max_threads; threads *= 2) {
+            System.out.printf("%8d %16.0f %16.0f%n", threads, throughput(threads, concurrent_tree()),
+                    throughput(threads, locked_tree()));
+        }
+    }
+}
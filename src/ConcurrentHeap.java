@@ -0,0 +1,225 @@
+/*
+ * ConcurrentHeap
+ * Thread safe priority queue with the insert_to_heap / peek_max / remove_max_element contract of Heap, built
+ * as a MultiQueue: the elements are spread over several Heaps, each behind its own lock.
+ *
+ * In relaxed mode insert_to_heap locks one random queue and remove_max_element takes the larger top of two
+ * random queues, so threads rarely meet on the same lock, at the price of sometimes returning an element that
+ * is not the global maximum. In strict mode removals lock every queue and take the true maximum, which gives
+ * the same ordering as a single synchronized Heap.
+ */
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentHeap<T extends Comparable<T>> {
+
+    private final Heap<T>[] queues;
+    private final ReentrantLock[] locks;
+
+    /* Top of every queue, readable without its lock to choose where to remove from */
+    private final AtomicReferenceArray<T> tops;
+
+    private final boolean strict;
+    private final AtomicInteger heap_size = new AtomicInteger();
+
+    /*
+     * Constructor taking the number of internal queues (a small multiple of the
+     * thread count works well), the initial capacity of each and the mode
+     */
+    public ConcurrentHeap(int num_queues, int queue_capacity, boolean strict) {
+        if (num_queues < 1) {
+            throw new IllegalArgumentException("Need at least one queue");
+        }
+
+        this.strict = strict;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Heap<T>[] created = (Heap<T>[]) new Heap[num_queues];
+        queues = created;
+        locks = new ReentrantLock[num_queues];
+        tops = new AtomicReferenceArray<>(num_queues);
+
+        for (int i = 0; i < num_queues; i++) {
+            queues[i] = new Heap<>(Math.max(1, queue_capacity));
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /* Get the number of internal queues */
+    public int get_num_queues() {
+        return queues.length;
+    }
+
+    /* Get the Current Size of the Heap, exact only when no other thread is updating it */
+    public int get_curr_size() {
+        return heap_size.get();
+    }
+
+    /* Whether removals always return the global maximum */
+    public boolean is_strict() {
+        return strict;
+    }
+
+    private T top(int q) {
+        return tops.get(q);
+    }
+
+    /* Refresh the published top of queue q, only called with its lock held */
+    private void update_top(int q) {
+        tops.set(q, (queues[q].get_curr_size() > 0) ? queues[q].peek_max() : null);
+    }
+
+    /* Larger of two tops where null means an empty queue */
+    private boolean greater(T a, T b) {
+        return a != null && (b == null || a.compareTo(b) > 0);
+    }
+
+    /* Insert an element into a random internal queue, growing it when full */
+    public boolean insert_to_heap(T element) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            int q = random.nextInt(queues.length);
+            if (!locks[q].tryLock()) {
+                continue;
+            }
+            try {
+                Heap<T> heap = queues[q];
+                if (heap.get_curr_size() == heap.get_max_size()) {
+                    heap.resize_heap(2 * heap.get_max_size());
+                }
+                heap.insert_to_heap(element);
+                update_top(q);
+                heap_size.incrementAndGet();
+                return true;
+            } finally {
+                locks[q].unlock();
+            }
+        }
+    }
+
+    /*
+     * Get the maximum Element. In relaxed mode this reads the published tops
+     * without locking, so it may already be stale when it returns.
+     */
+    public T peek_max() {
+        if (strict) {
+            lock_all();
+            try {
+                int q = max_queue();
+                if (q < 0) {
+                    throw new NoSuchElementException("Heap is Empty");
+                }
+                return queues[q].peek_max();
+            } finally {
+                unlock_all();
+            }
+        }
+
+        T best = null;
+        for (int q = 0; q < queues.length; q++) {
+            T candidate = top(q);
+            if (greater(candidate, best)) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+        return best;
+    }
+
+    /*
+     * Remove the largest element. Strict mode returns the global maximum, relaxed
+     * mode the larger top of two random queues.
+     */
+    public T remove_max_element() {
+        return strict ? remove_strict() : remove_relaxed();
+    }
+
+    private T remove_strict() {
+        lock_all();
+        try {
+            int q = max_queue();
+            if (q < 0) {
+                throw new NoSuchElementException("Heap is Empty");
+            }
+            return remove_from(q);
+        } finally {
+            unlock_all();
+        }
+    }
+
+    private T remove_relaxed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        while (true) {
+            int q1 = random.nextInt(queues.length);
+            int q2 = random.nextInt(queues.length);
+            int q = greater(top(q2), top(q1)) ? q2 : q1;
+
+            if (top(q) == null) {
+                /* Both picks were empty, only give up once every queue is */
+                q = first_non_empty();
+                if (q < 0) {
+                    throw new NoSuchElementException("Heap is Empty");
+                }
+            }
+
+            if (!locks[q].tryLock()) {
+                continue;
+            }
+            try {
+                if (queues[q].get_curr_size() > 0) {
+                    return remove_from(q);
+                }
+            } finally {
+                locks[q].unlock();
+            }
+        }
+    }
+
+    /* Pop the top of queue q, only called with its lock held */
+    private T remove_from(int q) {
+        T max_elem = queues[q].remove_max_element();
+        update_top(q);
+        heap_size.decrementAndGet();
+        return max_elem;
+    }
+
+    /* Index of the queue with the largest top, -1 when all are empty. Needs every lock held */
+    private int max_queue() {
+        int best = -1;
+        for (int q = 0; q < queues.length; q++) {
+            if (queues[q].get_curr_size() > 0 && (best < 0 || greater(queues[q].peek_max(), queues[best].peek_max()))) {
+                best = q;
+            }
+        }
+        return best;
+    }
+
+    private int first_non_empty() {
+        for (int q = 0; q < queues.length; q++) {
+            if (top(q) != null) {
+                return q;
+            }
+        }
+        return -1;
+    }
+
+    /* Locks are always taken in index order so strict operations cannot deadlock */
+    private void lock_all() {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+    }
+
+    private void unlock_all() {
+        for (int q = locks.length - 1; q >= 0; q--) {
+            locks[q].unlock();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * ConcurrentHeapBenchmark
+ * Measures contended insert / remove_max_element throughput of ConcurrentHeap in relaxed and strict mode
+ * against a Heap behind a single lock, from 1 to N threads.
+ */
+
+import java.util.*;
+
+public class ConcurrentHeapBenchmark {
+
+    private static final int PREFILL = 100_000;
+    private static final int OPS_PER_THREAD = 1_000_000;
+
+    /* The operations a benchmark thread runs, so every heap goes through the same loop */
+    private interface QueueOps {
+        void insert(int key);
+
+        int remove_max();
+    }
+
+    private static QueueOps locked_heap() {
+        Heap<Integer> heap = new Heap<>(PREFILL + 1024);
+        return new QueueOps() {
+            public synchronized void insert(int key) {
+                heap.insert_to_heap(key);
+            }
+
+            public synchronized int remove_max() {
+                return heap.remove_max_element();
+            }
+        };
+    }
+
+    private static QueueOps multi_queue(int threads, boolean strict) {
+        ConcurrentHeap<Integer> heap = new ConcurrentHeap<>(Math.max(2, 2 * threads), PREFILL, strict);
+        return new QueueOps() {
+            public void insert(int key) {
+                heap.insert_to_heap(key);
+            }
+
+            public int remove_max() {
+                return heap.remove_max_element();
+            }
+        };
+    }
+
+    /* Alternating inserts and removals so the size stays around PREFILL, returns operations per second */
+    private static double throughput(int threads, QueueOps ops) throws InterruptedException {
+        Random prefill = new Random(3);
+        for (int i = 0; i < PREFILL; i++) {
+            ops.insert(prefill.nextInt());
+        }
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final long seed = t;
+            workers[t] = new Thread(() -> {
+                Random r = new Random(seed);
+                for (int i = 0; i < OPS_PER_THREAD / 2; i++) {
+                    ops.insert(r.nextInt());
+                    ops.remove_max();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return (double) threads * OPS_PER_THREAD / ((System.nanoTime() - start) / 1e9);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int max_threads = Math.max(8, 2 * cores);
+
+        /* Warm up */
+        throughput(2, locked_heap());
+        throughput(2, multi_queue(2, false));
+        throughput(2, multi_queue(2, true));
+
+        System.out.println("Contended throughput on " + cores + " cores (ops/s) :");
+        System.out.printf("%8s %16s %16s %16s%n", "threads", "single lock", "relaxed", "strict");
+        for (int threads = 1; threads <= max_threads; threads *= 2) {
+            System.out.printf("%8d %16.0f %16.0f %16.0f%n", threads, throughput(threads, locked_heap()),
+                    throughput(threads, multi_queue(threads, false)), throughput(threads, multi_queue(threads, true)));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * CountMinSketch
+ * Fixed size table of depth rows by width counters. Every element adds one to a counter per row, picked by a
+ * hash of its hashCode, and its estimated count is the smallest of those counters. Estimates never undercount,
+ * and with width ceil(e / epsilon) and depth ceil(ln(1 / delta)) they overcount by more than epsilon times the
+ * number of adds with probability at most delta.
+ */
+
+public class CountMinSketch<T> {
+
+    private final int width;
+    private final int depth;
+    private final long[] table;
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Sketch width and depth must be at least 1");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.table = new long[width * depth];
+    }
+
+    /* Sketch sized for an overcount of at most epsilon * adds with probability 1 - delta */
+    public static <T> CountMinSketch<T> with_error(double epsilon, double delta) {
+        if (epsilon <= 0 || delta <= 0 || delta >= 1) {
+            throw new IllegalArgumentException("Need epsilon > 0 and 0 < delta < 1");
+        }
+        return new CountMinSketch<>((int) Math.ceil(Math.E / epsilon), (int) Math.ceil(Math.log(1 / delta)));
+    }
+
+    /* Row hashes derived from two mixes of the hash code, h1 + row * h2 */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private int slot(int h1, int h2, int row) {
+        return row * width + Math.floorMod(h1 + row * h2, width);
+    }
+
+    /* Count one more occurrence of element */
+    public void add(T element) {
+        int h1 = mix(element.hashCode());
+        int h2 = mix(h1 ^ 0x9e3779b9) | 1;
+        for (int row = 0; row < depth; row++) {
+            table[slot(h1, h2, row)]++;
+        }
+        total++;
+    }
+
+    /* Upper bound on the occurrences of element */
+    public long estimate(T element) {
+        int h1 = mix(element.hashCode());
+        int h2 = mix(h1 ^ 0x9e3779b9) | 1;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table[slot(h1, h2, row)]);
+        }
+        return min;
+    }
+
+    public int get_width() {
+        return width;
+    }
+
+    public int get_depth() {
+        return depth;
+    }
+
+    /* Get number of adds counted */
+    public long get_total() {
+        return total;
+    }
+}
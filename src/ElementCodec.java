@@ -0,0 +1,46 @@
+/*
+ * ElementCodec
+ * Fixed binary encoding of tree elements used by the BSTHeapTree snapshot format.
+ */
+
+import java.nio.ByteBuffer;
+
+public interface ElementCodec<T> {
+
+    /* Number of bytes write will use for element */
+    int size_of(T element);
+
+    /* Write element at the buffer position */
+    void write(ByteBuffer out, T element);
+
+    /* Read the element at the buffer position */
+    T read(ByteBuffer in);
+
+    ElementCodec<Integer> INTEGER = new ElementCodec<Integer>() {
+        public int size_of(Integer element) {
+            return Integer.BYTES;
+        }
+
+        public void write(ByteBuffer out, Integer element) {
+            out.putInt(element);
+        }
+
+        public Integer read(ByteBuffer in) {
+            return in.getInt();
+        }
+    };
+
+    ElementCodec<Long> LONG = new ElementCodec<Long>() {
+        public int size_of(Long element) {
+            return Long.BYTES;
+        }
+
+        public void write(ByteBuffer out, Long element) {
+            out.putLong(element);
+        }
+
+        public Long read(ByteBuffer in) {
+            return in.getLong();
+        }
+    };
+}
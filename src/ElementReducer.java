@@ -0,0 +1,9 @@
+/*
+ * ElementReducer
+ * Folds one stored element and its occurrence count into a partial result, see BSTHeapTree.parallel_reduce.
+ */
+
+public interface ElementReducer<T, R> {
+
+    R accumulate(R result, T element, int occurrences);
+}
@@ -0,0 +1,223 @@
+/*
+ * FrequencyIndex
+ * Keeps elements grouped in buckets by how often they occur. The buckets form a doubly linked list ordered by
+ * count, so moving an element one count up or down, reading the highest count and listing the k most
+ * frequent elements never scan the whole content.
+ */
+
+import java.util.*;
+
+public class FrequencyIndex<T> {
+
+    /* One bucket holds every element that currently occurs count times */
+    private static class freq_bucket<T> {
+        int count;
+        LinkedHashSet<T> elements = new LinkedHashSet<>();
+        freq_bucket<T> prev;
+        freq_bucket<T> next;
+
+        freq_bucket(int count) {
+            this.count = count;
+        }
+    }
+
+    private final Map<T, freq_bucket<T>> bucket_of = new HashMap<>();
+
+    /* Lowest and highest count buckets */
+    private freq_bucket<T> head;
+    private freq_bucket<T> tail;
+
+    /* Insert a new empty bucket with count right after prev, or at the head if prev is null */
+    private freq_bucket<T> insert_bucket_after(freq_bucket<T> prev, int count) {
+        freq_bucket<T> bucket = new freq_bucket<>(count);
+        bucket.prev = prev;
+        bucket.next = (prev == null) ? head : prev.next;
+
+        if (bucket.next != null) {
+            bucket.next.prev = bucket;
+        } else {
+            tail = bucket;
+        }
+        if (prev != null) {
+            prev.next = bucket;
+        } else {
+            head = bucket;
+        }
+        return bucket;
+    }
+
+    private void unlink_if_empty(freq_bucket<T> bucket) {
+        if (!bucket.elements.isEmpty()) {
+            return;
+        }
+        if (bucket.prev != null) {
+            bucket.prev.next = bucket.next;
+        } else {
+            head = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        } else {
+            tail = bucket.prev;
+        }
+    }
+
+    /*
+     * Count one more occurrence of element and return its new count
+     */
+    public int increment(T element) {
+        freq_bucket<T> curr = bucket_of.get(element);
+        int count = (curr == null) ? 1 : curr.count + 1;
+
+        freq_bucket<T> target = (curr == null) ? head : curr.next;
+        if (target == null || target.count != count) {
+            target = insert_bucket_after(curr, count);
+        }
+
+        target.elements.add(element);
+        bucket_of.put(element, target);
+        if (curr != null) {
+            curr.elements.remove(element);
+            unlink_if_empty(curr);
+        }
+        return count;
+    }
+
+    /*
+     * Count one occurrence of element less and return its new count, the element
+     * is dropped once it reaches 0. Returns -1 if the element is not indexed.
+     */
+    public int decrement(T element) {
+        freq_bucket<T> curr = bucket_of.get(element);
+        if (curr == null) {
+            return -1;
+        }
+
+        int count = curr.count - 1;
+        if (count == 0) {
+            bucket_of.remove(element);
+        } else {
+            freq_bucket<T> target = curr.prev;
+            if (target == null || target.count != count) {
+                target = insert_bucket_after(curr.prev, count);
+            }
+            target.elements.add(element);
+            bucket_of.put(element, target);
+        }
+
+        curr.elements.remove(element);
+        unlink_if_empty(curr);
+        return count;
+    }
+
+    /*
+     * Get the current count of element, 0 if it is not indexed
+     */
+    public int get_frequency(T element) {
+        freq_bucket<T> curr = bucket_of.get(element);
+        return (curr == null) ? 0 : curr.count;
+    }
+
+    /*
+     * Get the highest count of any element, 0 when empty
+     */
+    public int get_max_frequency() {
+        return (tail == null) ? 0 : tail.count;
+    }
+
+    /*
+     * Get the lowest count of any element, 0 when empty
+     */
+    public int get_min_frequency() {
+        return (head == null) ? 0 : head.count;
+    }
+
+    /*
+     * Get an element with the lowest count, the one that reached it first, or
+     * null when empty
+     */
+    public T get_min_element() {
+        return (head == null) ? null : head.elements.iterator().next();
+    }
+
+    /*
+     * Hand the count of old over to element in O(1), dropping old. element must
+     * not be indexed yet. Returns the count handed over, -1 if old is not indexed.
+     */
+    public int replace(T old, T element) {
+        freq_bucket<T> curr = bucket_of.remove(old);
+        if (curr == null) {
+            return -1;
+        }
+        curr.elements.remove(old);
+        curr.elements.add(element);
+        bucket_of.put(element, curr);
+        return curr.count;
+    }
+
+    /*
+     * Get number of distinct elements indexed
+     */
+    public int get_distinct_count() {
+        return bucket_of.size();
+    }
+
+    /*
+     * Returns up to k elements ordered from the most to the least frequent. Ties
+     * keep the order in which the elements reached that count.
+     */
+    public List<T> top_k(int k) {
+        List<T> result = new ArrayList<>(Math.max(0, Math.min(k, bucket_of.size())));
+
+        for (freq_bucket<T> bucket = tail; bucket != null && result.size() < k; bucket = bucket.prev) {
+            for (T element : bucket.elements) {
+                if (result.size() == k) {
+                    break;
+                }
+                result.add(element);
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Replace the content with the given element counts in one pass, grouping the
+     * elements by count and sorting only the distinct counts instead of walking
+     * every element up one bucket at a time. Counts below 1 are skipped.
+     */
+    public void rebuild(Map<T, Integer> counts) {
+        clear();
+
+        Map<Integer, freq_bucket<T>> by_count = new HashMap<>();
+        for (Map.Entry<T, Integer> entry : counts.entrySet()) {
+            int count = entry.getValue();
+            if (count < 1) {
+                continue;
+            }
+            freq_bucket<T> bucket = by_count.computeIfAbsent(count, freq_bucket::new);
+            bucket.elements.add(entry.getKey());
+            bucket_of.put(entry.getKey(), bucket);
+        }
+
+        Integer[] order = by_count.keySet().toArray(new Integer[0]);
+        Arrays.sort(order);
+        for (Integer count : order) {
+            freq_bucket<T> bucket = by_count.get(count);
+            bucket.prev = tail;
+            if (tail != null) {
+                tail.next = bucket;
+            } else {
+                head = bucket;
+            }
+            tail = bucket;
+        }
+    }
+
+    /*
+     * Drop every element
+     */
+    public void clear() {
+        bucket_of.clear();
+        head = tail = null;
+    }
+}
@@ -1,22 +1,98 @@
 /*
  * Heap Data Structure
+ * The arity is chosen at construction, binary by default. A node at array slot i has its children at slots
+ * arity * (i - arity + 2) onwards, so the root sits at slot arity - 1 and every group of siblings starts at a
+ * multiple of arity, keeping it inside one cache line for arity 4 or 8. For arity 2 this is the classic 1 based
+ * layout with children at 2 * i and 2 * i + 1.
+ *
+ * Elements inserted with insert_with_handle get an int handle through which they can later be reprioritised or
+ * removed in O(log n). The handle of every slot is kept next to the heap array and moved by swap_elements, so
+ * heaps that never hand out a handle pay one null check per swap.
  */
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Heap<T extends Comparable<T>> implements Iterable<T> {
 
+    /* Heaps below this size are built on the calling thread even on the parallel paths */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /* Subtrees estimated below this size are heapified by a single task */
+    private static final int SEQUENTIAL_CUTOFF = 1 << 13;
+
     private T[] heap;
     private int MAX_CAPACITY;
     private int heap_size;
+    private int arity;
+    private int root_idx;
 
-    @SuppressWarnings("unchecked")
+    /*
+     * Handle + 1 of the element in every slot, 0 for elements inserted without
+     * one, and the slot of every live handle, -1 for released handles. Both are
+     * null until the first handle is handed out.
+     */
+    private int[] handle_at;
+    private int[] slot_of;
+    private int[] free_handles;
+    private int free_count;
+    private int next_handle;
 
     public Heap(int maximum_size) {
+        this(maximum_size, 2);
+    }
+
+    @SuppressWarnings("unchecked")
+
+    /* Heap with arity children per node */
+    public Heap(int maximum_size, int arity) {
+
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2");
+        }
 
         this.heap_size = 0;
         this.MAX_CAPACITY = maximum_size;
-        heap = (T[]) new Comparable[this.MAX_CAPACITY + 1];
+        this.arity = arity;
+        this.root_idx = arity - 1;
+        heap = (T[]) new Comparable[this.MAX_CAPACITY + arity - 1];
+    }
+
+    /* Build the heap from the first len elements of src in linear time */
+    public Heap(T[] src, int len) {
+        this(len);
+        build_heap(src, len);
+    }
+
+    /* Get the number of children per node */
+    public int get_arity() {
+        return arity;
+    }
+
+    /* Slot of the last element in the heap array */
+    private int last_idx() {
+        return heap_size + arity - 2;
+    }
+
+    /* Slot of the parent of the node at slot idx */
+    private int parent_of(int idx) {
+        return (idx - arity) / arity + arity - 1;
+    }
+
+    /* Slot of the first child of the node at slot idx */
+    private int first_child(int idx) {
+        return arity * (idx - arity + 2);
+    }
+
+    /* Bring the element at slot idx up while it is larger than its parent */
+    private void sift_up(int idx) {
+        while ((idx > root_idx) && (heap[idx].compareTo(heap[parent_of(idx)])) > 0) {
+            swap_elements(idx, parent_of(idx));
+            idx = parent_of(idx);
+        }
     }
 
     /* To swap the two elements of heap array */
@@ -28,6 +104,70 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
         heap[idx1] = heap[idx2];
 
         heap[idx2] = elem;
+
+        if (handle_at != null) {
+            int handle = handle_at[idx1];
+            handle_at[idx1] = handle_at[idx2];
+            handle_at[idx2] = handle;
+            placed(idx1);
+            placed(idx2);
+        }
+    }
+
+    /* Point the handle of the element in slot idx, if any, at idx */
+    private void placed(int idx) {
+        if (handle_at[idx] != 0) {
+            slot_of[handle_at[idx] - 1] = idx;
+        }
+    }
+
+    /* Move the handle of slot from to slot to, releasing the one held by to */
+    private void move_handle(int from, int to) {
+        if (handle_at == null) {
+            return;
+        }
+        release(to);
+        handle_at[to] = handle_at[from];
+        handle_at[from] = 0;
+        placed(to);
+    }
+
+    /* Release the handle of the element in slot idx, its element is leaving the heap */
+    private void release(int idx) {
+        int handle = handle_at[idx] - 1;
+        if (handle < 0) {
+            return;
+        }
+        handle_at[idx] = 0;
+        slot_of[handle] = -1;
+        if (free_count == free_handles.length) {
+            free_handles = Arrays.copyOf(free_handles, 2 * free_count);
+        }
+        free_handles[free_count++] = handle;
+    }
+
+    /* Reuse a released handle or make a new one */
+    private int new_handle() {
+        if (handle_at == null) {
+            handle_at = new int[heap.length];
+            slot_of = new int[16];
+            free_handles = new int[16];
+        }
+        if (free_count > 0) {
+            return free_handles[--free_count];
+        }
+        if (next_handle == slot_of.length) {
+            slot_of = Arrays.copyOf(slot_of, 2 * next_handle);
+        }
+        return next_handle++;
+    }
+
+    /* Slot of a live handle */
+    private int slot_of_handle(int handle) {
+        if (slot_of == null || handle < 0 || handle >= next_handle || slot_of[handle] < 0) {
+            throw new NoSuchElementException("Invalid or Removed Handle");
+        }
+        return slot_of[handle];
     }
 
     /* Get the Maximum Size of the Heap */
@@ -46,38 +186,170 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
         if (idx < 1 || idx > heap_size) {
             throw new NoSuchElementException("Index Out of Bounds");
         }
-        return heap[idx];
+        return heap[idx + arity - 2];
     }
 
     /* Resize the heap with new size provided */
     public void resize_heap(int new_max_size) {
         this.MAX_CAPACITY = new_max_size;
-        heap = Arrays.copyOf(heap, this.MAX_CAPACITY);
+        heap = Arrays.copyOf(heap, this.MAX_CAPACITY + arity - 1);
+        if (handle_at != null) {
+            handle_at = Arrays.copyOf(handle_at, heap.length);
+        }
     }
 
     /* Heapify the heap to bottom carries the smaller element to bottom */
 
     public void heapify(int curr_idx) {
-        if ((curr_idx <= heap_size) && (curr_idx > heap_size / 2))
-            return;
+        int last = last_idx();
+
+        while (true) {
+            int first = first_child(curr_idx);
+            if (first > last)
+                return;
+
+            /* Pick the largest child, the last group may not be complete */
+            int child = first;
+            if (arity == 2) {
+                if (first < last && heap[first].compareTo(heap[first + 1]) <= 0) {
+                    child++;
+                }
+            } else {
+                int end = Math.min(first + arity - 1, last);
+                for (int c = first + 1; c <= end; c++) {
+                    if (heap[child].compareTo(heap[c]) <= 0) {
+                        child = c;
+                    }
+                }
+            }
 
-        if ((heap[curr_idx].compareTo(heap[2 * curr_idx]) < 0)
-                || (heap[curr_idx].compareTo(heap[2 * curr_idx + 1]) < 0)) {
+            if (heap[curr_idx].compareTo(heap[child]) >= 0)
+                return;
 
-            if (heap[2 * curr_idx].compareTo(heap[2 * curr_idx + 1]) <= 0) {
-                swap_elements(curr_idx, (2 * curr_idx + 1));
-                heapify(2 * curr_idx + 1);
-            } else {
-                swap_elements(curr_idx, 2 * curr_idx);
-                heapify(2 * curr_idx);
+            swap_elements(curr_idx, child);
+            curr_idx = child;
+        }
+    }
+
+    /*
+     * Append the first len elements of src to the heap and restore the heap
+     * property bottom up (Floyd), which is O(n) instead of O(n log n) for
+     * inserting them one by one
+     */
+    public void build_heap(T[] src, int len) {
+        if (len < 0 || len > src.length) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+
+        if (heap_size + len > MAX_CAPACITY) {
+            resize_heap(heap_size + len);
+        }
+
+        System.arraycopy(src, 0, heap, last_idx() + 1, len);
+        heap_size += len;
+
+        heapify_all();
+    }
+
+    /* Heapify every internal node from the last one up to the root */
+    private void heapify_all() {
+        for (int i = parent_of(last_idx()); i >= root_idx; i--) {
+            heapify(i);
+        }
+    }
+
+    /*
+     * Floyd on the subtree rooted at slot idx only. Its nodes at every level form
+     * one run of slots, so the runs are heapified from the deepest level up.
+     */
+    private void heapify_subtree(int idx) {
+        int last = last_idx();
+        int[] from = new int[Integer.SIZE];
+        int[] to = new int[Integer.SIZE];
+        int levels = 0;
+
+        long lo = idx;
+        long hi = idx;
+        while (lo <= last) {
+            from[levels] = (int) lo;
+            to[levels++] = (int) Math.min(hi, last);
+            lo = arity * (lo - arity + 2);
+            hi = arity * (hi - arity + 2) + arity - 1;
+        }
+
+        /* The deepest level holds leaves only */
+        for (int level = levels - 2; level >= 0; level--) {
+            for (int i = to[level]; i >= from[level]; i--) {
+                heapify(i);
+            }
+        }
+    }
+
+    /*
+     * Fork/join heapify of the subtree rooted at slot idx: the child subtrees are
+     * disjoint slot sets, so they are heapified as parallel tasks before the sift
+     * down of idx, which only touches its own subtree
+     */
+    private class heapify_task extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int idx;
+        private final long estimate;
+
+        heapify_task(int idx, long estimate) {
+            this.idx = idx;
+            this.estimate = estimate;
+        }
+
+        protected void compute() {
+            if (estimate < SEQUENTIAL_CUTOFF) {
+                heapify_subtree(idx);
+                return;
+            }
+
+            int first = first_child(idx);
+            int end = Math.min(first + arity - 1, last_idx());
+            List<heapify_task> children = new ArrayList<>(arity);
+            for (int c = first; c <= end; c++) {
+                children.add(new heapify_task(c, estimate / arity));
             }
+            invokeAll(children);
+            heapify(idx);
         }
     }
 
+    /* heapify_all, split over the common fork/join pool once the heap is large */
+    private void parallel_heapify_all() {
+        if (heap_size < PARALLEL_THRESHOLD) {
+            heapify_all();
+            return;
+        }
+        ForkJoinPool.commonPool().invoke(new heapify_task(root_idx, heap_size));
+    }
+
+    /*
+     * build_heap with the bottom up pass run as parallel fork/join tasks over
+     * disjoint subtrees, for heaps of at least PARALLEL_THRESHOLD elements
+     */
+    public void parallel_build_heap(T[] src, int len) {
+        if (len < 0 || len > src.length) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+
+        if (heap_size + len > MAX_CAPACITY) {
+            resize_heap(heap_size + len);
+        }
+
+        System.arraycopy(src, 0, heap, last_idx() + 1, len);
+        heap_size += len;
+
+        parallel_heapify_all();
+    }
+
     /* Search an element in the heap */
     public boolean search_element(T element) {
         boolean found = false;
-        for (int i = 1; i <= heap_size; i++) {
+        for (int i = root_idx; i <= last_idx(); i++) {
             if (heap[i].compareTo(element) == 0) {
                 return true;
             }
@@ -94,28 +366,70 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
             throw new NoSuchElementException("Heap is Full. Resize it to continue Further.");
         }
 
-        if (heap_size == 0) {
-            heap_size++;
-            heap[heap_size] = element;
-            return true;
-        }
-
         heap_size++;
-        heap[heap_size] = element;
+        heap[last_idx()] = element;
         // adjust the heap;
 
         /* Bring the maximum element to top bottom up approach */
-        int newly_inserted_idx = heap_size;
-        while ((newly_inserted_idx > 1) && (heap[newly_inserted_idx].compareTo(heap[(newly_inserted_idx / 2)])) > 0) {
-            swap_elements(newly_inserted_idx, (newly_inserted_idx / 2));
-            newly_inserted_idx = (newly_inserted_idx / 2);
-        }
+        sift_up(last_idx());
         return true;
     }
 
+    /*
+     * Insert an element and return a handle to it, valid for update_priority,
+     * remove and get_by_handle until the element leaves the heap. Released
+     * handles are reused by later inserts.
+     */
+    public int insert_with_handle(T element) {
+        if (heap_size == MAX_CAPACITY) {
+            throw new NoSuchElementException("Heap is Full. Resize it to continue Further.");
+        }
+
+        int handle = new_handle();
+        heap_size++;
+        heap[last_idx()] = element;
+        handle_at[last_idx()] = handle + 1;
+        slot_of[handle] = last_idx();
+
+        sift_up(last_idx());
+        return handle;
+    }
+
+    /* Get the element behind a handle */
+    public T get_by_handle(int handle) {
+        return heap[slot_of_handle(handle)];
+    }
+
+    /* Whether the element of the handle is still in the heap */
+    public boolean contains_handle(int handle) {
+        return slot_of != null && handle >= 0 && handle < next_handle && slot_of[handle] >= 0;
+    }
+
+    /*
+     * Replace the element behind a handle and sift it up or down from where it
+     * is in O(log n). Returns the old element.
+     */
+    public T update_priority(int handle, T element) {
+        int idx = slot_of_handle(handle);
+        T old = heap[idx];
+        heap[idx] = element;
+
+        if (element.compareTo(old) > 0) {
+            sift_up(idx);
+        } else {
+            heapify(idx);
+        }
+        return old;
+    }
+
+    /* Remove the element behind a handle in O(log n) and release the handle */
+    public T remove(int handle) {
+        return delete_at(slot_of_handle(handle));
+    }
+
     /* Print the heap Array */
     public void print() {
-        for (int i = 1; i <= heap_size; i++) {
+        for (int i = root_idx; i <= last_idx(); i++) {
             System.out.print(heap[i] + " ");
         }
         System.out.println();
@@ -127,7 +441,7 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
             throw new NoSuchElementException("Heap is Empty");
         }
 
-        return heap[1];
+        return heap[root_idx];
     }
 
     /*
@@ -137,23 +451,30 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
     public T remove_max_element() {
 
         if (heap_size == 1) {
+            if (handle_at != null) {
+                release(root_idx);
+            }
             heap_size = 0;
-            return heap[1];
+            return heap[root_idx];
         }
 
-        T max_elem = heap[1];
-        heap[1] = heap[heap_size];
+        T max_elem = heap[root_idx];
+        heap[root_idx] = heap[last_idx()];
+        move_handle(last_idx(), root_idx);
         heap_size -= 1;
 
         /* Generate New Max */
-        heapify(1);
+        heapify(root_idx);
         return max_elem;
     }
 
-    @SuppressWarnings("unchecked")
-
-    /* Remove Ith maximum element from the heap */
-    public T remove_ith_largest(int kth) {
+    /*
+     * Locate the index of the ith largest element without changing the heap. The
+     * candidates are kept in a small frontier heap of indices: popping the best
+     * one exposes its children, so only O(k) nodes are ever looked at and the
+     * search costs O(k log k).
+     */
+    private int locate_ith_largest(int kth) {
 
         if (heap_size == 0) {
             throw new NoSuchElementException("Heap is Empty");
@@ -162,34 +483,113 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
         if (kth > heap_size || kth < 1) {
             throw new NoSuchElementException("Index Out of Bounds");
         }
-        /* Remove the first i - 1 elements and then re-insert */
-        T[] rest_elements = (T[]) new Comparable[this.MAX_CAPACITY + 1];
-        int itr = 0;
 
-        T kth_max = null;
+        int[] frontier = new int[(kth - 1) * (arity - 1) + 2];
+        int frontier_size = 1;
+        frontier[1] = root_idx;
+
+        for (int i = 1; i < kth; i++) {
+            int top = frontier[1];
+
+            /* Pop the best candidate */
+            frontier[1] = frontier[frontier_size--];
+            int curr = 1;
+            while (2 * curr <= frontier_size) {
+                int child = 2 * curr;
+                if (child < frontier_size && heap[frontier[child + 1]].compareTo(heap[frontier[child]]) > 0) {
+                    child++;
+                }
+                if (!(heap[frontier[child]].compareTo(heap[frontier[curr]]) > 0)) {
+                    break;
+                }
+                int tmp = frontier[curr];
+                frontier[curr] = frontier[child];
+                frontier[child] = tmp;
+                curr = child;
+            }
 
-        for (int i = 0; i < kth; i++) {
-            T removed_element = this.remove_max_element();
-            if (i != kth - 1) {
-                rest_elements[itr++] = removed_element;
+            /* Its children become candidates */
+            int first = first_child(top);
+            for (int child = first; child < first + arity && child <= last_idx(); child++) {
+                frontier[++frontier_size] = child;
+                curr = frontier_size;
+                while (curr > 1 && heap[frontier[curr]].compareTo(heap[frontier[curr / 2]]) > 0) {
+                    int tmp = frontier[curr];
+                    frontier[curr] = frontier[curr / 2];
+                    frontier[curr / 2] = tmp;
+                    curr /= 2;
+                }
+            }
+        }
+        return frontier[1];
+    }
+
+    /* Get the ith largest element without removing anything, in O(k log k) */
+    public T peek_ith_largest(int kth) {
+        return heap[locate_ith_largest(kth)];
+    }
+
+    /* Delete the element at idx by moving the last one there and sifting it once */
+    private T delete_at(int idx) {
+        T elem = heap[idx];
+        heap[idx] = heap[last_idx()];
+        if (handle_at != null) {
+            if (idx == last_idx()) {
+                release(idx);
             } else {
-                kth_max = removed_element;
+                move_handle(last_idx(), idx);
             }
         }
+        heap_size -= 1;
 
-        for (int i = 0; i < itr; i++) {
-            this.insert_to_heap(rest_elements[i]);
+        if (idx > last_idx()) {
+            return elem;
         }
+        if (idx > root_idx && heap[idx].compareTo(heap[parent_of(idx)]) > 0) {
+            sift_up(idx);
+        } else {
+            heapify(idx);
+        }
+        return elem;
+    }
 
-        return kth_max;
+    /* Remove Ith maximum element from the heap with a single sift at its index */
+    public T remove_ith_largest(int kth) {
+        return delete_at(locate_ith_largest(kth));
     }
 
-    /* Merge the two heaps */
+    /* Merge the two heaps by appending the second heap array and heapifying in linear time */
     public void merge_heaps(Heap<T> secondHeap) {
         this.resize_heap(this.MAX_CAPACITY + secondHeap.get_max_size() + 5);
-        for (int i = 1; i <= secondHeap.get_curr_size(); i++) {
-            this.insert_to_heap(secondHeap.get_ith_element(i));
+        System.arraycopy(secondHeap.heap, secondHeap.root_idx, heap, last_idx() + 1, secondHeap.get_curr_size());
+        heap_size += secondHeap.get_curr_size();
+
+        heapify_all();
+    }
+
+    /*
+     * Merge every heap of the list into this one at once: one resize, one copy of
+     * each array and a single parallel bottom up pass over the result, instead of
+     * one full heapify per heap with repeated merge_heaps calls
+     */
+    public void merge_heaps(List<Heap<T>> heaps) {
+        long total = heap_size;
+        for (Heap<T> other : heaps) {
+            total += other.get_curr_size();
+        }
+        if (total > Integer.MAX_VALUE - arity) {
+            throw new NoSuchElementException("Merged heap too large");
+        }
+        if (total > MAX_CAPACITY) {
+            resize_heap((int) total);
+        }
+
+        for (Heap<T> other : heaps) {
+            System.arraycopy(other.heap, other.root_idx, heap, last_idx() + 1, other.get_curr_size());
+            heap_size += other.get_curr_size();
         }
+
+        parallel_heapify_all();
     }
 
     /* To provide user with heap array */
@@ -202,14 +602,14 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
         int idx = 1;
 
         public boolean hasNext() {
-            return idx < heap_size;
+            return idx <= heap_size;
         }
 
         public T next() {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            return heap[idx++];
+            return heap[root_idx + idx++ - 1];
         }
 
 
@@ -217,20 +617,104 @@ public class Heap<T extends Comparable<T>> implements Iterable<T> {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            T result = heap[heap_size];
-            heap[heap_size] = item;
-            int newly_inserted_idx = heap_size;
-            while ((newly_inserted_idx > 1) && heap[newly_inserted_idx].compareTo(heap[(newly_inserted_idx / 2)]) > 0) {
-                swap_elements(newly_inserted_idx, (newly_inserted_idx / 2));
-                newly_inserted_idx = (newly_inserted_idx / 2);
-            }
+            T result = heap[last_idx()];
+            heap[last_idx()] = item;
+            sift_up(last_idx());
             return result;
         }
     }
 
+    /*
+     * Yields the elements from the largest down without changing the heap. The
+     * candidates are kept in a frontier heap of slots like in locate_ith_largest:
+     * each next pops the best one and exposes its children, so the first k
+     * elements cost O(k log k) and the frontier never holds more than
+     * k * (arity - 1) + 1 slots. The heap must not change during iteration.
+     */
+    public class SortedIterator implements Iterator<T> {
+        private int[] frontier = new int[arity + 2];
+        private int frontier_size;
+
+        SortedIterator() {
+            if (heap_size > 0) {
+                frontier[1] = root_idx;
+                frontier_size = 1;
+            }
+        }
+
+        private void swap(int a, int b) {
+            int tmp = frontier[a];
+            frontier[a] = frontier[b];
+            frontier[b] = tmp;
+        }
+
+        public boolean hasNext() {
+            return frontier_size > 0;
+        }
+
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int top = frontier[1];
+
+            /* Pop the best candidate */
+            frontier[1] = frontier[frontier_size--];
+            int curr = 1;
+            while (2 * curr <= frontier_size) {
+                int child = 2 * curr;
+                if (child < frontier_size && heap[frontier[child + 1]].compareTo(heap[frontier[child]]) > 0) {
+                    child++;
+                }
+                if (!(heap[frontier[child]].compareTo(heap[frontier[curr]]) > 0)) {
+                    break;
+                }
+                swap(curr, child);
+                curr = child;
+            }
+
+            /* Its children become candidates */
+            int first = first_child(top);
+            for (int child = first; child < first + arity && child <= last_idx(); child++) {
+                if (frontier_size + 1 == frontier.length) {
+                    frontier = Arrays.copyOf(frontier, 2 * frontier.length);
+                }
+                frontier[++frontier_size] = child;
+                curr = frontier_size;
+                while (curr > 1 && heap[frontier[curr]].compareTo(heap[frontier[curr / 2]]) > 0) {
+                    swap(curr, curr / 2);
+                    curr /= 2;
+                }
+            }
+            return heap[top];
+        }
+    }
+
     @Override
     public HeapIterator iterator() {
         return new HeapIterator();
     }
 
+    /* Iterate the elements from the largest down, lazily and without changing the heap */
+    public SortedIterator sorted_iterator() {
+        return new SortedIterator();
+    }
+
+    /*
+     * Splits the used part of the heap array in halves, every part knowing its
+     * exact size. The heap must not change while the spliterator is in use.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(heap, root_idx, last_idx() + 1, Spliterator.NONNULL);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+/*
+ * HeapBenchmark
+ * Compares the generic Heap against the primitive IntHeap, LongHeap and OffHeapIntHeap on the same random
+ * workload and reports throughput together with the garbage collections each run triggered, then compares heap
+ * arities on insert heavy and remove_max_element heavy workloads.
+ */
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+public class HeapBenchmark {
+
+    private static final int SIZE = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    /* Sum of collections and collection time over all collectors as {count, millis} */
+    private static long[] gc_totals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, gc.getCollectionCount());
+            totals[1] += Math.max(0, gc.getCollectionTime());
+        }
+        return totals;
+    }
+
+    private static void report(String name, long nanos, long[] gc_before, long[] gc_after) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-14s %8.1f ms  %10.0f ops/s  gc count %3d  gc time %4d ms%n", name, nanos / 1e6,
+                (2.0 * SIZE * ROUNDS) / seconds, gc_after[0] - gc_before[0], gc_after[1] - gc_before[1]);
+    }
+
+    /* Insert every key and then drain the heap with remove_max_element */
+    private static long run_generic(int[] keys) {
+        long checksum = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            Heap<Integer> h = new Heap<>(keys.length);
+            for (int key : keys) {
+                h.insert_to_heap(key);
+            }
+            while (h.get_curr_size() > 0) {
+                checksum += h.remove_max_element();
+            }
+        }
+        return checksum;
+    }
+
+    private static long run_int(int[] keys) {
+        long checksum = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            IntHeap h = new IntHeap(keys.length);
+            for (int key : keys) {
+                h.insert_to_heap(key);
+            }
+            while (h.get_curr_size() > 0) {
+                checksum += h.remove_max_element();
+            }
+        }
+        return checksum;
+    }
+
+    private static long run_long(int[] keys) {
+        long checksum = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            LongHeap h = new LongHeap(keys.length);
+            for (int key : keys) {
+                h.insert_to_heap(key);
+            }
+            while (h.get_curr_size() > 0) {
+                checksum += h.remove_max_element();
+            }
+        }
+        return checksum;
+    }
+
+    private static long run_off_heap(int[] keys) {
+        long checksum = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            try (OffHeapIntHeap h = new OffHeapIntHeap(16)) {
+                for (int key : keys) {
+                    h.insert_to_heap(key);
+                }
+                while (h.get_curr_size() > 0) {
+                    checksum += h.remove_max_element();
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /* Fill a heap once per round either by repeated insert_to_heap or by build_heap */
+    private static long run_fill(Integer[] keys, boolean bulk) {
+        long checksum = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            Heap<Integer> h = new Heap<>(keys.length);
+            if (bulk) {
+                h.build_heap(keys, keys.length);
+            } else {
+                for (Integer key : keys) {
+                    h.insert_to_heap(key);
+                }
+            }
+            checksum += h.peek_max();
+        }
+        return checksum;
+    }
+
+    /* Insert every key into a heap of the given arity, returns elapsed nanoseconds */
+    private static long run_inserts(Integer[] keys, int arity) {
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            Heap<Integer> h = new Heap<>(keys.length, arity);
+            for (Integer key : keys) {
+                h.insert_to_heap(key);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /* Drain heaps of the given arity built from the keys, returns elapsed nanoseconds of the removals only */
+    private static long run_removals(Integer[] keys, int arity) {
+        long elapsed = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            Heap<Integer> wide = new Heap<>(keys.length, arity);
+            wide.build_heap(keys, keys.length);
+
+            long start = System.nanoTime();
+            while (wide.get_curr_size() > 0) {
+                wide.remove_max_element();
+            }
+            elapsed += System.nanoTime() - start;
+        }
+        return elapsed;
+    }
+
+    public static void main(String[] args) {
+
+        int[] keys = new int[SIZE];
+        Random r = new Random(42);
+        for (int i = 0; i < SIZE; i++) {
+            keys[i] = r.nextInt();
+        }
+
+        /* Warm up so the JIT has compiled all three variants before measuring */
+        run_generic(Arrays.copyOf(keys, SIZE / 10));
+        run_int(Arrays.copyOf(keys, SIZE / 10));
+        run_long(Arrays.copyOf(keys, SIZE / 10));
+        run_off_heap(Arrays.copyOf(keys, SIZE / 10));
+
+        System.out.println("Insert + drain of " + SIZE + " random keys, " + ROUNDS + " rounds :");
+
+        long[] gc_before = gc_totals();
+        long start = System.nanoTime();
+        long sum_generic = run_generic(keys);
+        report("Heap<Integer>", System.nanoTime() - start, gc_before, gc_totals());
+
+        gc_before = gc_totals();
+        start = System.nanoTime();
+        long sum_int = run_int(keys);
+        report("IntHeap", System.nanoTime() - start, gc_before, gc_totals());
+
+        gc_before = gc_totals();
+        start = System.nanoTime();
+        long sum_long = run_long(keys);
+        report("LongHeap", System.nanoTime() - start, gc_before, gc_totals());
+
+        gc_before = gc_totals();
+        start = System.nanoTime();
+        long sum_off_heap = run_off_heap(keys);
+        report("OffHeapIntHeap", System.nanoTime() - start, gc_before, gc_totals());
+
+        if (sum_generic != sum_int || sum_int != sum_long || sum_long != sum_off_heap) {
+            System.out.println("Checksum mismatch between heap variants!");
+        }
+
+        System.out.println();
+        System.out.println("Filling a heap with " + SIZE + " keys, " + ROUNDS + " rounds :");
+
+        Integer[] boxed = new Integer[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            boxed[i] = keys[i];
+        }
+        run_fill(Arrays.copyOf(boxed, SIZE / 10), false);
+        run_fill(Arrays.copyOf(boxed, SIZE / 10), true);
+
+        start = System.nanoTime();
+        run_fill(boxed, false);
+        System.out.printf("%-14s %8.1f ms%n", "insert_to_heap", (System.nanoTime() - start) / 1e6);
+
+        start = System.nanoTime();
+        run_fill(boxed, true);
+        System.out.printf("%-14s %8.1f ms%n", "build_heap", (System.nanoTime() - start) / 1e6);
+
+        System.out.println();
+        System.out.println("Heap arity, " + SIZE + " keys, " + ROUNDS + " rounds :");
+        System.out.printf("%-8s %14s %14s%n", "arity", "inserts (ms)", "removals (ms)");
+
+        int[] arities = {2, 4, 8};
+        for (int arity : arities) {
+            run_inserts(Arrays.copyOf(boxed, SIZE / 10), arity);
+            run_removals(Arrays.copyOf(boxed, SIZE / 10), arity);
+        }
+        for (int arity : arities) {
+            System.out.printf("%-8d %14.1f %14.1f%n", arity, run_inserts(boxed, arity) / 1e6,
+                    run_removals(boxed, arity) / 1e6);
+        }
+    }
+}
@@ -3,9 +3,14 @@
  * HeapDistinct
  * This is the Heap Data structure which takes only distinct elements as nodes and if an element occurs more than
  * once then stores its frequency like a pair of <value,frequency>
+ * The arity is chosen at construction, binary by default, with the same array layout as Heap: the root at slot
+ * arity - 1 and the children of slot i starting at slot arity * (i - arity + 2). Positions handed to and from
+ * users (get_ith_element, search_element, ...) count from 1 in level order whatever the arity.
  */
 
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
 
@@ -14,8 +19,21 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
     private int[] occurrences;
     private int max_heap_size;
     private int heap_size;
+    private int arity;
+    private int root_idx;
 
-    @SuppressWarnings("unchecked")
+    /* Optional element to heap index map, null when the heap is not indexed */
+    private Map<T, Integer> position;
+
+    /* Recent insert events of the windowed mode, null when counts never expire */
+    private SlidingWindow<T> window;
+
+    /*
+     * Per element, the events still in the window and how many of them were
+     * cancelled because explicit removals already took their occurrences back
+     */
+    private Map<T, Integer> windowed;
+    private Map<T, Integer> cancelled;
 
     /*
      * Constructor for Heap distinct class taking max size and initializing heap and
@@ -23,15 +41,192 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
      * initializing heap and occurrences
      */
     public HeapDistinct(int maximum_size) {
+        this(maximum_size, false, 2);
+    }
+
+    @SuppressWarnings("unchecked")
+
+    /*
+     * Constructor taking max size, whether to keep the element to index map and
+     * the number of children per node
+     */
+    public HeapDistinct(int maximum_size, boolean indexed, int arity) {
+
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity must be at least 2");
+        }
 
         this.heap_size = 0;
         this.max_heap_size = maximum_size;
-        heap = (T[]) new Comparable[this.max_heap_size + 1];
-        occurrences = new int[this.max_heap_size + 1];
+        this.arity = arity;
+        this.root_idx = arity - 1;
+        heap = (T[]) new Comparable[this.max_heap_size + arity - 1];
+        occurrences = new int[this.max_heap_size + arity - 1];
 
-        for (int i = 0; i < this.max_heap_size + 1; i++) {
+        for (int i = 0; i < this.max_heap_size + arity - 1; i++) {
             occurrences[i] = 0;
         }
+        if (indexed) {
+            position = new HashMap<>();
+        }
+    }
+
+    /*
+     * Constructor for an indexed Heap distinct. When indexed, an element to index
+     * map is kept in sync by swap_elements so duplicate detection and search are
+     * O(1) and insertion is O(log n). Requires equals of T to agree with compareTo.
+     */
+    public HeapDistinct(int maximum_size, boolean indexed) {
+        this(maximum_size, indexed, 2);
+    }
+
+    /*
+     * Whether this heap keeps an element to index map
+     */
+    public boolean is_indexed() {
+        return position != null;
+    }
+
+    /*
+     * Switch to the windowed mode: from now on every insert is recorded, and once
+     * more than max_events newer inserts follow it or it is older than
+     * max_age_nanos it is taken back, so occurrences count only recent events.
+     * Pass 0 for a bound that should not apply. Elements already in the heap
+     * stay until removed.
+     */
+    public void enable_window(long max_events, long max_age_nanos) {
+        window = new SlidingWindow<>(max_events, max_age_nanos);
+        windowed = new HashMap<>();
+        cancelled = new HashMap<>();
+    }
+
+    /* Stop expiring, the counts of the events still in the window are kept */
+    public void disable_window() {
+        window = null;
+        windowed = null;
+        cancelled = null;
+    }
+
+    public SlidingWindow<T> get_window() {
+        return window;
+    }
+
+    /* Record an insert event in the window and take back the events it pushes out */
+    void record_event(T element) {
+        if (window != null) {
+            long now = System.nanoTime();
+            windowed.merge(element, 1, Integer::sum);
+            window.push(element, now);
+            expire(now);
+        }
+    }
+
+    /* Take back every event that has fallen out of the window by now */
+    public void expire() {
+        if (window != null) {
+            expire(System.nanoTime());
+        }
+    }
+
+    private void expire(long now) {
+        T element;
+        while ((element = window.poll_expired(now)) != null) {
+            windowed.merge(element, -1, HeapDistinct::sum_or_null);
+            if (cancelled.containsKey(element)) {
+                cancelled.merge(element, -1, HeapDistinct::sum_or_null);
+            } else {
+                expire_event(element);
+            }
+        }
+    }
+
+    /* Count merge that drops the entry once it reaches 0 */
+    private static Integer sum_or_null(Integer a, Integer b) {
+        int sum = a + b;
+        return (sum == 0) ? null : sum;
+    }
+
+    /*
+     * An explicit removal left remaining occurrences of element. Cancel the
+     * window events of element that would otherwise take back occurrences that
+     * are no longer there, so a later expiry cannot hit a newer insert.
+     */
+    void cancel_events(T element, int remaining) {
+        if (window == null) {
+            return;
+        }
+        int live = windowed.getOrDefault(element, 0) - cancelled.getOrDefault(element, 0);
+        if (live > remaining) {
+            cancelled.merge(element, live - remaining, Integer::sum);
+        }
+    }
+
+    /* Take back one occurrence of an expired insert */
+    void expire_event(T element) {
+        remove_element(element);
+    }
+
+    /*
+     * Remove one occurrence of element, deleting it from the heap with a single
+     * sift when it was the last one. Returns the occurrences left, or -1 when it
+     * is not in the heap.
+     */
+    public int remove_element(T element) {
+        int idx = find_slot(element);
+        if (idx < 0) {
+            return -1;
+        }
+        if (occurrences[idx] > 1) {
+            cancel_events(element, occurrences[idx] - 1);
+            return --occurrences[idx];
+        }
+        delete_at(idx);
+        return 0;
+    }
+
+    /*
+     * Get the number of children per node
+     */
+    public int get_arity() {
+        return arity;
+    }
+
+    /* Slot of the last element in the heap array */
+    private int last_idx() {
+        return heap_size + arity - 2;
+    }
+
+    /* Slot of the parent of the node at slot idx */
+    private int parent_of(int idx) {
+        return (idx - arity) / arity + arity - 1;
+    }
+
+    /* Slot of the first child of the node at slot idx */
+    private int first_child(int idx) {
+        return arity * (idx - arity + 2);
+    }
+
+    /* Bring the element at slot idx up while it is larger than its parent */
+    private void sift_up(int idx) {
+        while ((idx > root_idx) && HeapStats.compare(heap[idx], heap[parent_of(idx)]) > 0) {
+            swap_elements(idx, parent_of(idx));
+            idx = parent_of(idx);
+        }
+    }
+
+    /* Slot holding element, -1 if it is not in the heap */
+    private int find_slot(T element) {
+        if (position != null) {
+            Integer at = position.get(element);
+            return (at == null) ? -1 : at;
+        }
+
+        for (int i = root_idx; i <= last_idx(); i++) {
+            if (HeapStats.compare(heap[i], element) == 0) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /*
@@ -41,6 +236,7 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
         T elem;
         int freq;
 
+        HeapStats.count_swap();
         elem = heap[idx1];
         freq = occurrences[idx1];
 
@@ -49,6 +245,11 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
 
         heap[idx2] = elem;
         occurrences[idx2] = freq;
+
+        if (position != null) {
+            position.put(heap[idx1], idx1);
+            position.put(heap[idx2], idx2);
+        }
     }
 
     /*
@@ -73,7 +274,7 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
         if (idx < 1 || idx > heap_size) {
             throw new NoSuchElementException("Index Out of Bounds");
         }
-        return heap[idx];
+        return heap[idx + arity - 2];
     }
 
     /*
@@ -84,7 +285,19 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
         if (idx < 1 || idx > heap_size) {
             throw new NoSuchElementException("Index Out of Bounds");
         }
-        return occurrences[idx];
+        return occurrences[idx + arity - 2];
+    }
+
+    /*
+     * Set ith Element's occurrences in the Heap Array without moving the element.
+     * A count of 0 leaves the element in place as a tombstone.
+     */
+    public void set_ith_elements_occurence(int idx, int count) {
+
+        if (idx < 1 || idx > heap_size) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+        occurrences[idx + arity - 2] = count;
     }
 
     /*
@@ -92,38 +305,123 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
      */
     public void resize_heap(int new_max_size) {
         this.max_heap_size = new_max_size;
-        heap = Arrays.copyOf(heap, this.max_heap_size + 1);
-        occurrences = Arrays.copyOf(occurrences, this.max_heap_size + 1);
+        heap = Arrays.copyOf(heap, this.max_heap_size + arity - 1);
+        occurrences = Arrays.copyOf(occurrences, this.max_heap_size + arity - 1);
     }
 
     /* Heapify the heap to bottom carries the smaller element to bottom */
     public void heapify(int curr_idx) {
-        if ((curr_idx <= heap_size) && (curr_idx > heap_size / 2))
-            return;
+        int last = last_idx();
+
+        while (true) {
+            int first = first_child(curr_idx);
+            if (first > last)
+                return;
+
+            /* Pick the largest child, the last group may not be complete */
+            int child = first;
+            if (arity == 2) {
+                if (first < last && HeapStats.compare(heap[first], heap[first + 1]) <= 0) {
+                    child++;
+                }
+            } else {
+                int end = Math.min(first + arity - 1, last);
+                for (int c = first + 1; c <= end; c++) {
+                    if (HeapStats.compare(heap[child], heap[c]) <= 0) {
+                        child = c;
+                    }
+                }
+            }
 
-        if ((heap[curr_idx].compareTo(heap[2 * curr_idx]) < 0)
-                || (heap[curr_idx].compareTo(heap[2 * curr_idx + 1]) < 0)) {
+            if (HeapStats.compare(heap[curr_idx], heap[child]) >= 0)
+                return;
 
-            if (heap[2 * curr_idx].compareTo(heap[2 * curr_idx + 1]) <= 0) {
-                swap_elements(curr_idx, (2 * curr_idx + 1));
-                heapify(2 * curr_idx + 1);
-            } else {
-                swap_elements(curr_idx, 2 * curr_idx);
-                heapify(2 * curr_idx);
+            swap_elements(curr_idx, child);
+            curr_idx = child;
+        }
+    }
+
+    /*
+     * Add the first len elements of src to the heap, counting duplicates as
+     * occurrences, and restore the heap property bottom up (Floyd) in O(n)
+     */
+    public void build_heap(T[] src, int len) {
+        build_heap(src, null, len);
+    }
+
+    /*
+     * Same as build_heap but src[i] is added counts[i] times. Duplicates are
+     * detected through a hash map, so equals of T must agree with compareTo.
+     */
+    public void build_heap(T[] src, int[] counts, int len) {
+        if (len < 0 || len > src.length || (counts != null && len > counts.length)) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+
+        Map<T, Integer> index = position;
+        if (index == null) {
+            index = new HashMap<>();
+            for (int i = root_idx; i <= last_idx(); i++) {
+                index.put(heap[i], i);
+            }
+        }
+
+        for (int i = 0; i < len; i++) {
+            int count = (counts == null) ? 1 : counts[i];
+            Integer idx = index.get(src[i]);
+
+            if (idx != null) {
+                occurrences[idx] += count;
+                continue;
+            }
+
+            if (heap_size == max_heap_size) {
+                resize_heap(heap_size + len - i);
+            }
+            heap_size++;
+            heap[last_idx()] = src[i];
+            occurrences[last_idx()] = count;
+            index.put(src[i], last_idx());
+        }
+
+        for (int i = parent_of(last_idx()); i >= root_idx; i--) {
+            heapify(i);
+        }
+    }
+
+    /*
+     * Replace the content with the first len elements of src, src[i] occurring
+     * counts[i] times, taken as they are in level order. Nothing is compared, so
+     * src must already be a valid heap of distinct elements such as one read back
+     * from get_ith_element and get_ith_elements_occurence.
+     */
+    public void restore_heap(T[] src, int[] counts, int len) {
+        if (len < 0 || len > max_heap_size || len > src.length || len > counts.length) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+
+        Arrays.fill(heap, null);
+        Arrays.fill(occurrences, 0);
+        System.arraycopy(src, 0, heap, root_idx, len);
+        System.arraycopy(counts, 0, occurrences, root_idx, len);
+        heap_size = len;
+
+        if (position != null) {
+            position.clear();
+            for (int i = root_idx; i <= last_idx(); i++) {
+                position.put(heap[i], i);
             }
         }
     }
 
     /* Search an element in the heap array with modified index of it */
     public boolean search_element(T element, int[] idx) {
-        boolean found = false;
-        for (int i = 1; i <= heap_size; i++) {
-            if (heap[i].compareTo(element) == 0) {
-                idx[0] = i;
-                return true;
-            }
+        int slot = find_slot(element);
+        if (slot < 0) {
+            return false;
         }
-        return found;
+        idx[0] = slot - arity + 2;
+        return true;
     }
 
     /*
@@ -132,11 +430,11 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
      */
     public boolean insert_to_heap(T element) {
 
-        for (int i = 1; i <= heap_size; i++) {
-            if (heap[i].compareTo(element) == 0) {
-                occurrences[i]++;
-                return true;
-            }
+        int found = find_slot(element);
+        if (found >= 0) {
+            occurrences[found]++;
+            record_event(element);
+            return true;
         }
         /* Not present */
 
@@ -144,23 +442,16 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
             throw new NoSuchElementException("Heap is Full. Resize it to continue Further.");
         }
 
-        if (heap_size == 0) {
-            heap_size++;
-            heap[heap_size] = element;
-            occurrences[heap_size] = 1;
-            return true;
-        }
-
         heap_size++;
-        heap[heap_size] = element;
-        occurrences[heap_size] = 1;
+        heap[last_idx()] = element;
+        occurrences[last_idx()] = 1;
+        if (position != null) {
+            position.put(element, last_idx());
+        }
         // adjust the heap;
 
-        int newly_inserted_idx = heap_size;
-        while ((newly_inserted_idx > 1) && (heap[newly_inserted_idx].compareTo(heap[(newly_inserted_idx / 2)])) > 0) {
-            swap_elements(newly_inserted_idx, (newly_inserted_idx / 2));
-            newly_inserted_idx = (newly_inserted_idx / 2);
-        }
+        sift_up(last_idx());
+        record_event(element);
         return true;
 
     }
@@ -172,7 +463,7 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
         if (heap_size < 1) {
             throw new NoSuchElementException("Heap is Empty");
         }
-        return heap[1];
+        return heap[root_idx];
     }
 
     /*
@@ -183,31 +474,39 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
      */
     public T remove_max_element_without_occurence(int[] occ, int i) {
 
+        cancel_events(heap[root_idx], 0);
         if (heap_size == 1) {
             heap_size = 0;
-            occ[i] = occurrences[1];
-            return heap[1];
+            occ[i] = occurrences[root_idx];
+            if (position != null) {
+                position.remove(heap[root_idx]);
+            }
+            return heap[root_idx];
         }
 
-        T max_elem = heap[1];
-        occ[i] = occurrences[1];
+        T max_elem = heap[root_idx];
+        occ[i] = occurrences[root_idx];
 
-        heap[1] = heap[heap_size];
-        occurrences[1] = occurrences[heap_size];
+        heap[root_idx] = heap[last_idx()];
+        occurrences[root_idx] = occurrences[last_idx()];
         heap_size -= 1;
+        if (position != null) {
+            position.remove(max_elem);
+            position.put(heap[root_idx], root_idx);
+        }
 
         /* Generate New Max */
-        heapify(1);
+        heapify(root_idx);
         return max_elem;
     }
 
-    @SuppressWarnings("unchecked")
     /*
-     * Remove the ith largest element in the heap. if occurencs > 0 then removes
-     * only 1 occurence else deletes the element from the heap. works in 0(nlogn)
-     * time complexity
+     * Locate the index of the ith largest distinct element without changing the heap. The
+     * candidates are kept in a small frontier heap of indices: popping the best
+     * one exposes its children, so only O(k) nodes are ever looked at and the
+     * search costs O(k log k).
      */
-    public T remove_ith_largest(int kth) {
+    private int locate_ith_largest(int kth) {
 
         if (heap_size == 0) {
             throw new NoSuchElementException("Heap is Empty");
@@ -217,46 +516,105 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
             throw new NoSuchElementException("Index Out of Bounds");
         }
 
-        T[] rest_elements = (T[]) new Comparable[100000];
-        int[] rest_elements_occurences = new int[this.max_heap_size + 1];
-        int itr = 0;
+        int[] frontier = new int[(kth - 1) * (arity - 1) + 2];
+        int frontier_size = 1;
+        frontier[1] = root_idx;
 
-        T kth_max = null;
+        for (int i = 1; i < kth; i++) {
+            int top = frontier[1];
 
-        for (int i = 0; i < kth; i++) {
-            T removed_element = this.remove_max_element_without_occurence(rest_elements_occurences, 0);
-            if (i != kth - 1) {
-                for (int j = 0; j < rest_elements_occurences[0]; j++) {
-                    rest_elements[itr++] = removed_element;
+            /* Pop the best candidate */
+            frontier[1] = frontier[frontier_size--];
+            int curr = 1;
+            while (2 * curr <= frontier_size) {
+                int child = 2 * curr;
+                if (child < frontier_size && HeapStats.compare(heap[frontier[child + 1]], heap[frontier[child]]) > 0) {
+                    child++;
                 }
-            } else {
-                kth_max = removed_element;
-                for (int j = 0; j < rest_elements_occurences[0] - 1; j++) {
-                    rest_elements[itr++] = removed_element;
+                if (!(HeapStats.compare(heap[frontier[child]], heap[frontier[curr]]) > 0)) {
+                    break;
+                }
+                int tmp = frontier[curr];
+                frontier[curr] = frontier[child];
+                frontier[child] = tmp;
+                curr = child;
+            }
+
+            /* Its children become candidates */
+            int first = first_child(top);
+            for (int child = first; child < first + arity && child <= last_idx(); child++) {
+                frontier[++frontier_size] = child;
+                curr = frontier_size;
+                while (curr > 1 && HeapStats.compare(heap[frontier[curr]], heap[frontier[curr / 2]]) > 0) {
+                    int tmp = frontier[curr];
+                    frontier[curr] = frontier[curr / 2];
+                    frontier[curr / 2] = tmp;
+                    curr /= 2;
                 }
             }
         }
+        return frontier[1];
+    }
+
+    /* Get the ith largest distinct element without removing anything, in O(k log k) */
+    public T peek_ith_largest(int kth) {
+        return heap[locate_ith_largest(kth)];
+    }
 
-        for (int i = 0; i < itr; i++) {
-            this.insert_to_heap(rest_elements[i]);
+    /* Delete the element at idx by moving the last one there and sifting it once */
+    private T delete_at(int idx) {
+        T elem = heap[idx];
+        cancel_events(elem, 0);
+        heap[idx] = heap[last_idx()];
+        occurrences[idx] = occurrences[last_idx()];
+        if (position != null) {
+            position.remove(elem);
+            if (idx < last_idx()) {
+                position.put(heap[idx], idx);
+            }
         }
+        heap_size -= 1;
 
-        return kth_max;
+        if (idx > last_idx()) {
+            return elem;
+        }
+        if (idx > root_idx && HeapStats.compare(heap[idx], heap[parent_of(idx)]) > 0) {
+            sift_up(idx);
+        } else {
+            heapify(idx);
+        }
+        return elem;
+    }
+
+    /*
+     * Remove the ith largest element in the heap. if occurencs > 0 then removes
+     * only 1 occurence else deletes the element from the heap with a single sift
+     * at its index. works in O(k log k) time complexity
+     */
+    public T remove_ith_largest(int kth) {
+
+        int idx = locate_ith_largest(kth);
+
+        if (occurrences[idx] > 1) {
+            occurrences[idx]--;
+            cancel_events(heap[idx], occurrences[idx]);
+            return heap[idx];
+        }
+        return delete_at(idx);
     }
 
     /*
      * Merges the second heap passed as a parameter to the first one by resizing the
-     * first one.
+     * first one. Its elements and occurrences are appended in one pass and the heap
+     * is rebuilt bottom up, so merging costs O(n + m).
      */
     public void merge_heaps(HeapDistinct<T> secondHeap) {
 
         this.resize_heap(this.max_heap_size + secondHeap.get_max_size() + 5);
-        for (int i = 1; i <= secondHeap.get_curr_size(); i++) {
-            int y = secondHeap.get_ith_elements_occurence(i);
-            for (int j = 0; j < y; j++) {
-                this.insert_to_heap(secondHeap.get_ith_element(i));
-            }
-        }
+        int m = secondHeap.get_curr_size();
+        int from = secondHeap.root_idx;
+        build_heap(Arrays.copyOfRange(secondHeap.heap, from, from + m),
+                Arrays.copyOfRange(secondHeap.occurrences, from, from + m), m);
     }
 
     /*
@@ -264,7 +622,7 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
      */
     public void print() {
         System.out.println("Element:Frequency");
-        for (int i = 1; i <= heap_size; i++) {
+        for (int i = root_idx; i <= last_idx(); i++) {
             System.out.print(heap[i] + ":" + occurrences[i] + " ");
         }
         System.out.println();
@@ -277,8 +635,17 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
     public void replace_heap(HeapDistinct<T> secondHeap) {
         this.max_heap_size = secondHeap.max_heap_size;
         this.heap_size = secondHeap.heap_size;
-        heap = Arrays.copyOf(secondHeap.heap, this.max_heap_size + 1);
-        occurrences = Arrays.copyOf(secondHeap.occurrences, this.max_heap_size + 1);
+        this.arity = secondHeap.arity;
+        this.root_idx = secondHeap.root_idx;
+        heap = Arrays.copyOf(secondHeap.heap, this.max_heap_size + arity - 1);
+        occurrences = Arrays.copyOf(secondHeap.occurrences, this.max_heap_size + arity - 1);
+
+        if (position != null) {
+            position.clear();
+            for (int i = root_idx; i <= last_idx(); i++) {
+                position.put(heap[i], i);
+            }
+        }
         return;
     }
 
@@ -293,28 +660,28 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
         int idx = 1;
 
         public boolean hasNext() {
-            return idx < heap_size;
+            return idx <= heap_size;
         }
 
         public T next() {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            return heap[idx++];
+            return heap[root_idx + idx++ - 1];
         }
 
         public T setValue(T item) {
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            T result = heap[heap_size];
-            heap[heap_size] = item;
-            occurrences[heap_size] = 1;
-            int newly_inserted_idx = heap_size;
-            while ((newly_inserted_idx > 1) && heap[newly_inserted_idx].compareTo(heap[(newly_inserted_idx / 2)]) > 0) {
-                swap_elements(newly_inserted_idx, (newly_inserted_idx / 2));
-                newly_inserted_idx = (newly_inserted_idx / 2);
+            T result = heap[last_idx()];
+            heap[last_idx()] = item;
+            occurrences[last_idx()] = 1;
+            if (position != null) {
+                position.remove(result);
+                position.put(item, last_idx());
             }
+            sift_up(last_idx());
             return result;
         }
     }
@@ -324,4 +691,23 @@ public class HeapDistinct<T extends Comparable<T>> implements Iterable<T> {
         return new HeapIterator();
     }
 
+    /*
+     * Splits the used part of the heap array in halves, every part knowing its
+     * exact size. Each distinct element is reported once, its occurrences are
+     * read through search_element. The heap must not change while the
+     * spliterator is in use.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return Spliterators.spliterator(heap, root_idx, last_idx() + 1, Spliterator.NONNULL | Spliterator.DISTINCT);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,47 @@
+/*
+ * HeapStats
+ * Hot path counters of HeapDistinct and BSTHeapTree: compareTo calls, swap_elements calls and tree nodes
+ * visited. Counting is switched on for the whole JVM with -Dbstheap.stats=true. The switch is a static final
+ * constant, so when it is off the JIT drops every counting call and the hot paths cost what they did before.
+ * Counters are kept per thread and never reset; BSTHeapTreeStats reads the difference around one operation.
+ */
+
+public class HeapStats {
+
+    /* Whether the counters are maintained, fixed at class load */
+    public static final boolean ENABLED = Boolean.getBoolean("bstheap.stats");
+
+    static final int COMPARES = 0;
+    static final int SWAPS = 1;
+    static final int VISITS = 2;
+
+    private static final ThreadLocal<long[]> COUNTERS = ThreadLocal.withInitial(() -> new long[3]);
+
+    private HeapStats() {
+    }
+
+    /* a.compareTo(b), counted */
+    public static <T extends Comparable<T>> int compare(T a, T b) {
+        if (ENABLED) {
+            COUNTERS.get()[COMPARES]++;
+        }
+        return a.compareTo(b);
+    }
+
+    public static void count_swap() {
+        if (ENABLED) {
+            COUNTERS.get()[SWAPS]++;
+        }
+    }
+
+    public static void count_visit() {
+        if (ENABLED) {
+            COUNTERS.get()[VISITS]++;
+        }
+    }
+
+    /* Running totals of the calling thread, indexed by COMPARES, SWAPS and VISITS */
+    static long[] counters() {
+        return COUNTERS.get();
+    }
+}
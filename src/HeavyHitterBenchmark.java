@@ -0,0 +1,105 @@
+/*
+ * HeavyHitterBenchmark
+ * Compares SpaceSaving, with and without a CountMinSketch behind it, against the exact BSTHeapTree on a Zipfian
+ * stream over many distinct values. Reports add throughput, the elements each one keeps, recall of the true top
+ * K, the mode and the worst and mean overcount of find on the true top K against the adds / capacity bound.
+ * Usage: java HeavyHitterBenchmark [stream length] [distinct values]
+ */
+
+import java.util.*;
+
+public class HeavyHitterBenchmark {
+
+    private static final int TOP_K = 100;
+    private static final int[] CAPACITIES = { 1_000, 10_000 };
+    private static final double ZIPF_S = 1.1;
+
+    /* n keys over distinct values, rank r drawn with weight 1 / r^s and mapped to a shuffled key */
+    private static int[] zipf_stream(int n, int distinct, Random random) {
+        double[] cumulative = new double[distinct];
+        double total = 0;
+        for (int r = 0; r < distinct; r++) {
+            total += 1 / Math.pow(r + 1, ZIPF_S);
+            cumulative[r] = total;
+        }
+        int[] key_of_rank = new int[distinct];
+        for (int r = 0; r < distinct; r++) {
+            key_of_rank[r] = r;
+        }
+        for (int i = distinct - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = key_of_rank[i];
+            key_of_rank[i] = key_of_rank[j];
+            key_of_rank[j] = t;
+        }
+
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            int r = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            keys[i] = key_of_rank[Math.min(distinct - 1, r < 0 ? -r - 1 : r)];
+        }
+        return keys;
+    }
+
+    private static void report_summary(String name, SpaceSaving<Integer> summary, int[] stream,
+                                       BSTHeapTree<Integer> exact, List<Integer> true_top) {
+        long start = System.nanoTime();
+        for (int key : stream) {
+            summary.add(key);
+        }
+        long nanos = System.nanoTime() - start;
+
+        Set<Integer> reported = new HashSet<>(summary.top_k_frequent(TOP_K));
+        int hits = 0;
+        long worst = 0;
+        long sum = 0;
+        for (int key : true_top) {
+            if (reported.contains(key)) {
+                hits++;
+            }
+            long error = summary.find(key) - exact.find(key);
+            if (error < 0) {
+                throw new IllegalStateException(name + " undercounts " + key);
+            }
+            worst = Math.max(worst, error);
+            sum += error;
+        }
+
+        System.out.printf("%-28s %8.1f M adds/s %9d kept  recall %5.1f%%  mode %7d  overcount max %6d mean %8.1f"
+                        + "  bound %6d%n", name, stream.length * 1e3 / nanos, summary.get_monitored(),
+                100.0 * hits / true_top.size(), summary.find_mode(), worst, (double) sum / true_top.size(),
+                summary.get_error_bound());
+    }
+
+    public static void main(String[] args) {
+        int n = (args.length > 0) ? Integer.parseInt(args[0]) : 2_000_000;
+        int distinct = (args.length > 1) ? Integer.parseInt(args[1]) : 1_000_000;
+
+        int[] stream = zipf_stream(n, distinct, new Random(42));
+        System.out.println(n + " adds, Zipf s=" + ZIPF_S + " over " + distinct + " values, top " + TOP_K + " :");
+
+        /* Warm up both summaries on a prefix so the first measured one is not penalised */
+        for (int capacity : CAPACITIES) {
+            SpaceSaving<Integer> warm = new SpaceSaving<>(capacity, CountMinSketch.with_error(1e-4, 0.01));
+            for (int i = 0; i < Math.min(n, 500_000); i++) {
+                warm.add(stream[i]);
+            }
+        }
+
+        BSTHeapTree<Integer> exact = new BSTHeapTree<>(64, true, true);
+        long start = System.nanoTime();
+        for (int key : stream) {
+            exact.add(key);
+        }
+        long nanos = System.nanoTime() - start;
+        List<Integer> true_top = exact.top_k_frequent(TOP_K);
+        System.out.printf("%-28s %8.1f M adds/s %9d kept  recall %5.1f%%  mode %7d%n", "BSTHeapTree (exact)",
+                n * 1e3 / nanos, exact.parallel_distinct_count(), 100.0, exact.find_mode());
+
+        for (int capacity : CAPACITIES) {
+            report_summary("SpaceSaving " + capacity, new SpaceSaving<>(capacity), stream, exact, true_top);
+            report_summary("SpaceSaving " + capacity + " + CountMin",
+                    new SpaceSaving<>(capacity, CountMinSketch.with_error(1e-4, 0.01)), stream, exact, true_top);
+        }
+    }
+}
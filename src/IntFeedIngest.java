@@ -0,0 +1,208 @@
+/*
+ * IntFeedIngest
+ * Streams integers from a channel or a file into a BSTHeapTree. Input is either text, decimal ints separated
+ * by anything that is not a digit or a leading minus sign, or little endian binary ints. Bytes are read into
+ * one reused direct buffer and parsed into one reused int batch that is pushed to the tree when full, so memory
+ * stays bounded by the buffer and batch sizes whatever the input size and parsing allocates nothing. Files are
+ * memory mapped a window at a time. Usage: java IntFeedIngest <file or -> [text|binary] [heapSize]
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class IntFeedIngest {
+
+    private static final int READ_BUFFER = 1 << 16;
+    private static final int MAP_WINDOW = 1 << 26;
+
+    private final BSTHeapTree<Integer> tree;
+    private final boolean binary;
+    private final int[] batch;
+    private int batch_size;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+
+    /* Text parser state carried across buffer boundaries */
+    private long value;
+    private boolean negative;
+    private boolean in_number;
+
+    private long elements;
+    private long bytes;
+    private long nanos;
+
+    public IntFeedIngest(BSTHeapTree<Integer> tree, boolean binary, int batch_capacity) {
+        if (batch_capacity < 1) {
+            throw new IllegalArgumentException("Batch capacity must be at least 1");
+        }
+        this.tree = tree;
+        this.binary = binary;
+        this.batch = new int[batch_capacity];
+    }
+
+    /*
+     * Read the channel to its end and add every integer to the tree. Returns the
+     * number of integers added by this call.
+     */
+    public long ingest(ReadableByteChannel channel) throws IOException {
+        long start = System.nanoTime();
+        long before = elements;
+
+        buffer.clear();
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            parse(buffer);
+            /* Keep a partial binary int for the next read */
+            buffer.compact();
+        }
+        buffer.flip();
+        finish(buffer);
+
+        nanos += System.nanoTime() - start;
+        return elements - before;
+    }
+
+    /*
+     * Add every integer of the file to the tree, mapping it MAP_WINDOW bytes at
+     * a time. Returns the number of integers added by this call.
+     */
+    public long ingest(Path path) throws IOException {
+        long start = System.nanoTime();
+        long before = elements;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            /* Binary windows stay int aligned so no int is split between two of them */
+            long window = binary ? MAP_WINDOW - MAP_WINDOW % Integer.BYTES : MAP_WINDOW;
+
+            while (position < size) {
+                long length = Math.min(window, size - position);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                parse(mapped);
+                if (binary && mapped.hasRemaining()) {
+                    throw new IOException("Binary feed length is not a multiple of " + Integer.BYTES);
+                }
+                position += length;
+            }
+            finish(ByteBuffer.allocate(0));
+        }
+
+        nanos += System.nanoTime() - start;
+        return elements - before;
+    }
+
+    /* Parse as much of in as forms whole values, leaving a partial binary int in it */
+    private void parse(ByteBuffer in) {
+        bytes += in.remaining();
+        if (binary) {
+            while (in.remaining() >= Integer.BYTES) {
+                push(in.getInt());
+            }
+            bytes -= in.remaining();
+            return;
+        }
+
+        while (in.hasRemaining()) {
+            byte c = in.get();
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw new NumberFormatException("Integer out of range in feed");
+                }
+                in_number = true;
+            } else {
+                end_number();
+                negative = (c == '-');
+            }
+        }
+    }
+
+    /* Flush the number or bytes left at the end of the input and the last batch */
+    private void finish(ByteBuffer rest) throws IOException {
+        if (binary && rest.hasRemaining()) {
+            throw new IOException("Binary feed length is not a multiple of " + Integer.BYTES);
+        }
+        end_number();
+        negative = false;
+        flush();
+    }
+
+    private void end_number() {
+        if (in_number) {
+            long signed = negative ? -value : value;
+            if (signed > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Integer out of range in feed");
+            }
+            push((int) signed);
+        }
+        value = 0;
+        in_number = false;
+    }
+
+    private void push(int key) {
+        batch[batch_size++] = key;
+        if (batch_size == batch.length) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        for (int i = 0; i < batch_size; i++) {
+            tree.add(batch[i]);
+        }
+        elements += batch_size;
+        batch_size = 0;
+    }
+
+    /*
+     * Get number of integers added so far
+     */
+    public long get_elements() {
+        return elements;
+    }
+
+    /*
+     * Throughput over every ingest call so far as elements per second
+     */
+    public double get_elements_per_second() {
+        return (nanos == 0) ? 0 : elements * 1e9 / nanos;
+    }
+
+    public String report() {
+        return String.format("%d elements, %.1f MB in %.1f ms, %.0f elements/s", elements, bytes / 1e6, nanos / 1e6,
+                get_elements_per_second());
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: java IntFeedIngest <file or -> [text|binary] [heapSize]");
+            return;
+        }
+
+        boolean binary = args.length > 1 && args[1].equals("binary");
+        int heap_size = (args.length > 2) ? Integer.parseInt(args[2]) : 64;
+
+        BSTHeapTree<Integer> tree = new BSTHeapTree<>(heap_size, true, true);
+        IntFeedIngest ingest = new IntFeedIngest(tree, binary, 8192);
+
+        if (args[0].equals("-")) {
+            ingest.ingest(Channels.newChannel(System.in));
+        } else {
+            ingest.ingest(Paths.get(args[0]));
+        }
+
+        System.out.println(ingest.report());
+        System.out.println("nodes " + tree.get_node_count() + ", height " + tree.get_height() + ", mode "
+                + tree.find_mode());
+    }
+}
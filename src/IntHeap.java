@@ -0,0 +1,267 @@
+/*
+ * IntHeap
+ * Heap Data Structure specialized for primitive int keys. Keeps the same API as Heap but stores the keys
+ * directly in an int array so there is no boxing on insert and no compareTo call while heapifying.
+ */
+
+import java.util.*;
+
+public class IntHeap {
+
+    private int[] heap;
+    private int MAX_CAPACITY;
+    private int heap_size;
+
+    public IntHeap(int maximum_size) {
+
+        this.heap_size = 0;
+        this.MAX_CAPACITY = maximum_size;
+        heap = new int[this.MAX_CAPACITY + 1];
+    }
+
+    /* Build the heap from the first len elements of src in linear time */
+    public IntHeap(int[] src, int len) {
+        this(len);
+        build_heap(src, len);
+    }
+
+    /* To swap the two elements of heap array */
+    public void swap_elements(int idx1, int idx2) {
+        int elem;
+
+        elem = heap[idx1];
+
+        heap[idx1] = heap[idx2];
+
+        heap[idx2] = elem;
+    }
+
+    /* Get the Maximum Size of the Heap */
+    public int get_max_size() {
+        return MAX_CAPACITY;
+    }
+
+    /* Get the Current Size of the Heap */
+    public int get_curr_size() {
+        return heap_size;
+    }
+
+    /* Get Element at Ith Index */
+    public int get_ith_element(int idx) {
+
+        if (idx < 1 || idx > heap_size) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+        return heap[idx];
+    }
+
+    /* Resize the heap with new size provided */
+    public void resize_heap(int new_max_size) {
+        this.MAX_CAPACITY = new_max_size;
+        heap = Arrays.copyOf(heap, this.MAX_CAPACITY + 1);
+    }
+
+    /* Heapify the heap to bottom carries the smaller element to bottom */
+    public void heapify(int curr_idx) {
+        while (2 * curr_idx <= heap_size) {
+            int child = 2 * curr_idx;
+
+            /* Pick the larger child, the right one may not exist */
+            if (child < heap_size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (heap[curr_idx] >= heap[child]) {
+                return;
+            }
+            swap_elements(curr_idx, child);
+            curr_idx = child;
+        }
+    }
+
+    /*
+     * Append the first len elements of src to the heap and restore the heap
+     * property bottom up (Floyd) in O(n)
+     */
+    public void build_heap(int[] src, int len) {
+        if (len < 0 || len > src.length) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+
+        if (heap_size + len > MAX_CAPACITY) {
+            resize_heap(heap_size + len);
+        }
+
+        System.arraycopy(src, 0, heap, heap_size + 1, len);
+        heap_size += len;
+
+        for (int i = heap_size / 2; i >= 1; i--) {
+            heapify(i);
+        }
+    }
+
+    /* Search an element in the heap */
+    public boolean search_element(int element) {
+        for (int i = 1; i <= heap_size; i++) {
+            if (heap[i] == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Insert an element to the heap */
+    public boolean insert_to_heap(int element) {
+
+        if (heap_size == MAX_CAPACITY) {
+            throw new NoSuchElementException("Heap is Full. Resize it to continue Further.");
+        }
+
+        heap_size++;
+        heap[heap_size] = element;
+
+        /* Bring the maximum element to top bottom up approach */
+        int newly_inserted_idx = heap_size;
+        while ((newly_inserted_idx > 1) && (heap[newly_inserted_idx] > heap[(newly_inserted_idx / 2)])) {
+            swap_elements(newly_inserted_idx, (newly_inserted_idx / 2));
+            newly_inserted_idx = (newly_inserted_idx / 2);
+        }
+        return true;
+    }
+
+    /* Print the heap Array */
+    public void print() {
+        for (int i = 1; i <= heap_size; i++) {
+            System.out.print(heap[i] + " ");
+        }
+        System.out.println();
+    }
+
+    /* Get the maximum Element */
+    public int peek_max() {
+        if (heap_size < 1) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+
+        return heap[1];
+    }
+
+    /*
+     * Remove the largest element and decrease size and again heapify to bring
+     * second max to array
+     */
+    public int remove_max_element() {
+
+        if (heap_size < 1) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+
+        int max_elem = heap[1];
+        heap[1] = heap[heap_size];
+        heap_size -= 1;
+
+        /* Generate New Max */
+        heapify(1);
+        return max_elem;
+    }
+
+    /*
+     * Locate the index of the ith largest element without changing the heap. The
+     * candidates are kept in a small frontier heap of indices: popping the best
+     * one exposes its two children, so only O(k) nodes are ever looked at and the
+     * search costs O(k log k).
+     */
+    private int locate_ith_largest(int kth) {
+
+        if (heap_size == 0) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+
+        if (kth > heap_size || kth < 1) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+
+        int[] frontier = new int[kth + 2];
+        int frontier_size = 1;
+        frontier[1] = 1;
+
+        for (int i = 1; i < kth; i++) {
+            int top = frontier[1];
+
+            /* Pop the best candidate */
+            frontier[1] = frontier[frontier_size--];
+            int curr = 1;
+            while (2 * curr <= frontier_size) {
+                int child = 2 * curr;
+                if (child < frontier_size && heap[frontier[child + 1]] > heap[frontier[child]]) {
+                    child++;
+                }
+                if (!(heap[frontier[child]] > heap[frontier[curr]])) {
+                    break;
+                }
+                int tmp = frontier[curr];
+                frontier[curr] = frontier[child];
+                frontier[child] = tmp;
+                curr = child;
+            }
+
+            /* Its children become candidates */
+            for (int child = 2 * top; child <= 2 * top + 1 && child <= heap_size; child++) {
+                frontier[++frontier_size] = child;
+                curr = frontier_size;
+                while (curr > 1 && heap[frontier[curr]] > heap[frontier[curr / 2]]) {
+                    int tmp = frontier[curr];
+                    frontier[curr] = frontier[curr / 2];
+                    frontier[curr / 2] = tmp;
+                    curr /= 2;
+                }
+            }
+        }
+        return frontier[1];
+    }
+
+    /* Get the ith largest element without removing anything, in O(k log k) */
+    public int peek_ith_largest(int kth) {
+        return heap[locate_ith_largest(kth)];
+    }
+
+    /* Delete the element at idx by moving the last one there and sifting it once */
+    private int delete_at(int idx) {
+        int elem = heap[idx];
+        heap[idx] = heap[heap_size];
+        heap_size -= 1;
+
+        if (idx > heap_size) {
+            return elem;
+        }
+        if (idx > 1 && heap[idx] > heap[idx / 2]) {
+            while (idx > 1 && heap[idx] > heap[idx / 2]) {
+                swap_elements(idx, idx / 2);
+                idx /= 2;
+            }
+        } else {
+            heapify(idx);
+        }
+        return elem;
+    }
+
+    /* Remove Ith maximum element from the heap with a single sift at its index */
+    public int remove_ith_largest(int kth) {
+        return delete_at(locate_ith_largest(kth));
+    }
+
+    /* Merge the two heaps by appending the second heap array and heapifying in linear time */
+    public void merge_heaps(IntHeap secondHeap) {
+        this.resize_heap(this.MAX_CAPACITY + secondHeap.get_max_size() + 5);
+        System.arraycopy(secondHeap.heap, 1, heap, heap_size + 1, secondHeap.get_curr_size());
+        heap_size += secondHeap.get_curr_size();
+
+        for (int i = heap_size / 2; i >= 1; i--) {
+            heapify(i);
+        }
+    }
+
+    /* To provide user with heap array */
+    public int[] return_heap() {
+        return heap;
+    }
+}
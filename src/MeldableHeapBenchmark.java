@@ -0,0 +1,144 @@
+/*
+ * MeldableHeapBenchmark
+ * Compares the array Heap with the pointer based PairingHeap on merge heavy workloads: folding many partial
+ * heaps into one, and a pipeline that keeps merging fresh partial heaps into a running heap while draining its
+ * largest elements. Each case reports the best of ROUNDS runs.
+ */
+
+import java.util.*;
+
+public class MeldableHeapBenchmark {
+
+    private static final int PARTS = 4096;
+    private static final int PART_SIZE = 256;
+    private static final int DRAIN = 64;
+    private static final int ROUNDS = 5;
+
+    /* The array pipeline rebuilds the whole running heap per merge, fewer parts keep it to seconds */
+    private static final int PIPELINE_PARTS = 1024;
+
+    private static long sink;
+
+    private static Integer[][] parts(long seed) {
+        Random random = new Random(seed);
+        Integer[][] parts = new Integer[PARTS][PART_SIZE];
+        for (Integer[] part : parts) {
+            for (int i = 0; i < PART_SIZE; i++) {
+                part[i] = random.nextInt();
+            }
+        }
+        return parts;
+    }
+
+    /* Fold every part into one heap, merging pairs of heaps level by level */
+    private static long fold_array(Integer[][] parts) {
+        List<Heap<Integer>> heaps = new ArrayList<>();
+        for (Integer[] part : parts) {
+            heaps.add(new Heap<>(part, part.length));
+        }
+        long start = System.nanoTime();
+        while (heaps.size() > 1) {
+            List<Heap<Integer>> next = new ArrayList<>();
+            for (int i = 0; i + 1 < heaps.size(); i += 2) {
+                heaps.get(i).merge_heaps(heaps.get(i + 1));
+                next.add(heaps.get(i));
+            }
+            if (heaps.size() % 2 == 1) {
+                next.add(heaps.get(heaps.size() - 1));
+            }
+            heaps = next;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += heaps.get(0).peek_max();
+        return elapsed;
+    }
+
+    private static long fold_pairing(Integer[][] parts) {
+        List<PairingHeap<Integer>> heaps = new ArrayList<>();
+        for (Integer[] part : parts) {
+            heaps.add(new PairingHeap<>(part, part.length));
+        }
+        long start = System.nanoTime();
+        while (heaps.size() > 1) {
+            List<PairingHeap<Integer>> next = new ArrayList<>();
+            for (int i = 0; i + 1 < heaps.size(); i += 2) {
+                heaps.get(i).merge_heaps(heaps.get(i + 1));
+                next.add(heaps.get(i));
+            }
+            if (heaps.size() % 2 == 1) {
+                next.add(heaps.get(heaps.size() - 1));
+            }
+            heaps = next;
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += heaps.get(0).peek_max();
+        return elapsed;
+    }
+
+    /* Merge each part into a running heap and take its DRAIN largest elements after every merge */
+    private static long pipeline_array(Integer[][] parts) {
+        List<Heap<Integer>> heaps = new ArrayList<>();
+        for (int p = 0; p < PIPELINE_PARTS; p++) {
+            heaps.add(new Heap<>(parts[p], parts[p].length));
+        }
+        Heap<Integer> running = new Heap<>(PART_SIZE);
+        long start = System.nanoTime();
+        for (Heap<Integer> part : heaps) {
+            running.merge_heaps(part);
+            for (int i = 0; i < DRAIN; i++) {
+                sink += running.remove_max_element();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long pipeline_pairing(Integer[][] parts) {
+        List<PairingHeap<Integer>> heaps = new ArrayList<>();
+        for (int p = 0; p < PIPELINE_PARTS; p++) {
+            heaps.add(new PairingHeap<>(parts[p], parts[p].length));
+        }
+        PairingHeap<Integer> running = new PairingHeap<>();
+        long start = System.nanoTime();
+        for (PairingHeap<Integer> part : heaps) {
+            running.merge_heaps(part);
+            for (int i = 0; i < DRAIN; i++) {
+                sink += running.remove_max_element();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private interface workload {
+        long run(Integer[][] parts);
+    }
+
+    /* Best of ROUNDS in milliseconds */
+    private static double best(workload w, Integer[][] parts) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            best = Math.min(best, w.run(parts));
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[] args) {
+        Integer[][] parts = parts(42);
+
+        System.out.println(PARTS + " partial heaps of " + PART_SIZE + " elements :");
+
+        double array_fold = best(MeldableHeapBenchmark::fold_array, parts);
+        double pairing_fold = best(MeldableHeapBenchmark::fold_pairing, parts);
+        System.out.printf("%-34s %10.2f ms%n", "Heap pairwise fold", array_fold);
+        System.out.printf("%-34s %10.2f ms  %7.1fx%n", "PairingHeap pairwise fold", pairing_fold,
+                array_fold / pairing_fold);
+
+        double array_pipeline = best(MeldableHeapBenchmark::pipeline_array, parts);
+        double pairing_pipeline = best(MeldableHeapBenchmark::pipeline_pairing, parts);
+        System.out.println(PIPELINE_PARTS + " partial heaps merged into a running heap :");
+        System.out.printf("%-34s %10.2f ms%n", "Heap merge + drain " + DRAIN, array_pipeline);
+        System.out.printf("%-34s %10.2f ms  %7.1fx%n", "PairingHeap merge + drain " + DRAIN, pairing_pipeline,
+                array_pipeline / pairing_pipeline);
+
+        System.out.println("checksum " + sink);
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * OffHeapIntHeap
+ * IntHeap whose keys live in native memory (a direct ByteBuffer) instead of a Java array, so a heap of
+ * hundreds of millions of keys adds nothing for the garbage collector to scan or copy. The buffer grows by
+ * reallocating native memory when the heap is full and is freed as soon as the heap is closed.
+ */
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+
+public class OffHeapIntHeap implements AutoCloseable {
+
+    /* Largest capacity a single direct buffer of int keys can hold with the 1 based layout */
+    private static final int LIMIT = Integer.MAX_VALUE / Integer.BYTES - 1;
+
+    /* sun.misc.Unsafe.invokeCleaner to free a direct buffer right away, null if unavailable */
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method cleaner = null;
+        try {
+            Class<?> unsafe_class = Class.forName("sun.misc.Unsafe");
+            Field field = unsafe_class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            cleaner = unsafe_class.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            /* Fall back to letting the garbage collector release the buffers */
+            unsafe = null;
+            cleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = cleaner;
+    }
+
+    private ByteBuffer heap;
+    private int MAX_CAPACITY;
+    private int heap_size;
+
+    public OffHeapIntHeap(int maximum_size) {
+
+        if (maximum_size < 0 || maximum_size > LIMIT) {
+            throw new IllegalArgumentException("Capacity must be between 0 and " + LIMIT);
+        }
+        this.heap_size = 0;
+        this.MAX_CAPACITY = maximum_size;
+        heap = allocate(this.MAX_CAPACITY);
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect((capacity + 1) * Integer.BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            /* The garbage collector frees it once unreachable */
+        }
+    }
+
+    private int get(int idx) {
+        return heap.getInt(idx * Integer.BYTES);
+    }
+
+    private void set(int idx, int value) {
+        heap.putInt(idx * Integer.BYTES, value);
+    }
+
+    private void check_open() {
+        if (heap == null) {
+            throw new IllegalStateException("Heap is Closed");
+        }
+    }
+
+    /* To swap the two elements of heap array */
+    public void swap_elements(int idx1, int idx2) {
+        int elem;
+
+        elem = get(idx1);
+
+        set(idx1, get(idx2));
+
+        set(idx2, elem);
+    }
+
+    /* Get the Maximum Size of the Heap */
+    public int get_max_size() {
+        return MAX_CAPACITY;
+    }
+
+    /* Get the Current Size of the Heap */
+    public int get_curr_size() {
+        return heap_size;
+    }
+
+    /* Get the native memory held by the heap in bytes */
+    public long get_native_bytes() {
+        return (heap == null) ? 0 : heap.capacity();
+    }
+
+    /* Get Element at Ith Index */
+    public int get_ith_element(int idx) {
+        check_open();
+
+        if (idx < 1 || idx > heap_size) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+        return get(idx);
+    }
+
+    /*
+     * Resize the heap with new size provided, the elements are copied into a newly
+     * allocated native buffer and the old one is freed immediately
+     */
+    public void resize_heap(int new_max_size) {
+        check_open();
+
+        if (new_max_size < heap_size || new_max_size > LIMIT) {
+            throw new IllegalArgumentException("Capacity must be between " + heap_size + " and " + LIMIT);
+        }
+
+        ByteBuffer resized = allocate(new_max_size);
+        ByteBuffer used = heap.duplicate();
+        used.position(0).limit((heap_size + 1) * Integer.BYTES);
+        resized.put(used);
+        resized.clear();
+
+        free(heap);
+        heap = resized;
+        this.MAX_CAPACITY = new_max_size;
+    }
+
+    /* Heapify the heap to bottom carries the smaller element to bottom */
+    public void heapify(int curr_idx) {
+        while (2 * curr_idx <= heap_size) {
+            int child = 2 * curr_idx;
+
+            /* Pick the larger child, the right one may not exist */
+            if (child < heap_size && get(child + 1) > get(child)) {
+                child++;
+            }
+            if (get(curr_idx) >= get(child)) {
+                return;
+            }
+            swap_elements(curr_idx, child);
+            curr_idx = child;
+        }
+    }
+
+    /*
+     * Append the first len elements of src to the heap and restore the heap
+     * property bottom up (Floyd) in O(n)
+     */
+    public void build_heap(int[] src, int len) {
+        check_open();
+
+        if (len < 0 || len > src.length) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+        if ((long) heap_size + len > LIMIT) {
+            throw new NoSuchElementException("Heap is Full.");
+        }
+        if (heap_size + len > MAX_CAPACITY) {
+            resize_heap(heap_size + len);
+        }
+
+        for (int i = 0; i < len; i++) {
+            set(heap_size + 1 + i, src[i]);
+        }
+        heap_size += len;
+
+        for (int i = heap_size / 2; i >= 1; i--) {
+            heapify(i);
+        }
+    }
+
+    /* Search an element in the heap */
+    public boolean search_element(int element) {
+        check_open();
+
+        for (int i = 1; i <= heap_size; i++) {
+            if (get(i) == element) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* Insert an element to the heap, doubling the native buffer when it is full */
+    public boolean insert_to_heap(int element) {
+        check_open();
+
+        if (heap_size == MAX_CAPACITY) {
+            if (MAX_CAPACITY == LIMIT) {
+                throw new NoSuchElementException("Heap is Full.");
+            }
+            resize_heap((int) Math.min(LIMIT, Math.max(16L, 2L * MAX_CAPACITY)));
+        }
+
+        heap_size++;
+        set(heap_size, element);
+
+        /* Bring the maximum element to top bottom up approach */
+        int newly_inserted_idx = heap_size;
+        while ((newly_inserted_idx > 1) && (get(newly_inserted_idx) > get(newly_inserted_idx / 2))) {
+            swap_elements(newly_inserted_idx, (newly_inserted_idx / 2));
+            newly_inserted_idx = (newly_inserted_idx / 2);
+        }
+        return true;
+    }
+
+    /* Print the heap Array */
+    public void print() {
+        check_open();
+
+        for (int i = 1; i <= heap_size; i++) {
+            System.out.print(get(i) + " ");
+        }
+        System.out.println();
+    }
+
+    /* Get the maximum Element */
+    public int peek_max() {
+        check_open();
+
+        if (heap_size < 1) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+
+        return get(1);
+    }
+
+    /*
+     * Remove the largest element and decrease size and again heapify to bring
+     * second max to array
+     */
+    public int remove_max_element() {
+        check_open();
+
+        if (heap_size < 1) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+
+        int max_elem = get(1);
+        set(1, get(heap_size));
+        heap_size -= 1;
+
+        /* Generate New Max */
+        heapify(1);
+        return max_elem;
+    }
+
+    /* Merge the two heaps by appending the second heap and heapifying in linear time */
+    public void merge_heaps(OffHeapIntHeap secondHeap) {
+        check_open();
+        secondHeap.check_open();
+
+        long needed = (long) heap_size + secondHeap.get_curr_size();
+        if (needed > LIMIT) {
+            throw new NoSuchElementException("Heap is Full.");
+        }
+        if (needed > MAX_CAPACITY) {
+            resize_heap((int) needed);
+        }
+
+        for (int i = 1; i <= secondHeap.get_curr_size(); i++) {
+            set(heap_size + i, secondHeap.get(i));
+        }
+        heap_size += secondHeap.get_curr_size();
+
+        for (int i = heap_size / 2; i >= 1; i--) {
+            heapify(i);
+        }
+    }
+
+    /* Free the native memory, the heap cannot be used afterwards */
+    @Override
+    public void close() {
+        if (heap != null) {
+            free(heap);
+            heap = null;
+            heap_size = 0;
+            MAX_CAPACITY = 0;
+        }
+    }
+}
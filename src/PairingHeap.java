@@ -0,0 +1,188 @@
+/*
+ * Pairing Heap
+ * Pointer based max heap with the insert_to_heap, peek_max and remove_max_element API of Heap. Every node keeps
+ * its first child and its next sibling. Insert and merge_heaps link two roots in O(1), and remove_max_element
+ * pairs up the children of the removed root in two passes, amortized O(log n). merge_heaps takes the nodes of the
+ * other heap instead of copying an array, so merge heavy workloads never resize or rebuild anything.
+ */
+
+import java.util.*;
+
+public class PairingHeap<T extends Comparable<T>> implements Iterable<T> {
+
+    private static class node<T> {
+        private T data;
+        private node<T> child;
+        private node<T> sibling;
+
+        node(T data) {
+            this.data = data;
+        }
+    }
+
+    private node<T> root;
+    private int heap_size;
+
+    public PairingHeap() {
+        root = null;
+        heap_size = 0;
+    }
+
+    /* Build the heap from the first len elements of src */
+    public PairingHeap(T[] src, int len) {
+        this();
+        if (len < 0 || len > src.length) {
+            throw new NoSuchElementException("Index Out of Bounds");
+        }
+        for (int i = 0; i < len; i++) {
+            insert_to_heap(src[i]);
+        }
+    }
+
+    /* Get the Current Size of the Heap */
+    public int get_curr_size() {
+        return heap_size;
+    }
+
+    /* Link two roots, the smaller one becomes the first child of the larger */
+    private node<T> meld(node<T> a, node<T> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (b.data.compareTo(a.data) > 0) {
+            node<T> tmp = a;
+            a = b;
+            b = tmp;
+        }
+        b.sibling = a.child;
+        a.child = b;
+        return a;
+    }
+
+    /*
+     * Two pass pairing of a sibling list: meld neighbours left to right, then
+     * meld the results right to left into one root. Both passes run in place
+     * through the sibling links, so long child lists need no recursion.
+     */
+    private node<T> combine_siblings(node<T> first) {
+        if (first == null) {
+            return null;
+        }
+
+        /* Pairs are chained in reverse order through their sibling link */
+        node<T> paired = null;
+        while (first != null) {
+            node<T> a = first;
+            node<T> b = a.sibling;
+            if (b == null) {
+                a.sibling = paired;
+                paired = a;
+                break;
+            }
+            first = b.sibling;
+            a.sibling = null;
+            b.sibling = null;
+            node<T> pair = meld(a, b);
+            pair.sibling = paired;
+            paired = pair;
+        }
+
+        node<T> result = paired;
+        paired = paired.sibling;
+        result.sibling = null;
+        while (paired != null) {
+            node<T> next = paired.sibling;
+            paired.sibling = null;
+            result = meld(result, paired);
+            paired = next;
+        }
+        return result;
+    }
+
+    /* Insert an element to the heap in O(1) */
+    public boolean insert_to_heap(T element) {
+        root = meld(root, new node<>(element));
+        heap_size++;
+        return true;
+    }
+
+    /* Get the maximum Element */
+    public T peek_max() {
+        if (heap_size < 1) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+        return root.data;
+    }
+
+    /* Remove the largest element and pair up its children into the new root */
+    public T remove_max_element() {
+        if (heap_size < 1) {
+            throw new NoSuchElementException("Heap is Empty");
+        }
+
+        T max_elem = root.data;
+        root = combine_siblings(root.child);
+        heap_size--;
+        return max_elem;
+    }
+
+    /*
+     * Merge the second heap into this one in O(1) by linking the two roots. The
+     * second heap is left empty.
+     */
+    public void merge_heaps(PairingHeap<T> secondHeap) {
+        if (secondHeap == this) {
+            return;
+        }
+        root = meld(root, secondHeap.root);
+        heap_size += secondHeap.heap_size;
+
+        secondHeap.root = null;
+        secondHeap.heap_size = 0;
+    }
+
+    /* Print the heap elements, the root first */
+    public void print() {
+        for (T element : this) {
+            System.out.print(element + " ");
+        }
+        System.out.println();
+    }
+
+    /* Iterates every element once, the root first and the rest in no particular order */
+    public class HeapIterator implements Iterator<T> {
+        private final ArrayDeque<node<T>> pending = new ArrayDeque<>();
+
+        HeapIterator() {
+            if (root != null) {
+                pending.push(root);
+            }
+        }
+
+        public boolean hasNext() {
+            return !pending.isEmpty();
+        }
+
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            node<T> curr = pending.pop();
+            if (curr.sibling != null) {
+                pending.push(curr.sibling);
+            }
+            if (curr.child != null) {
+                pending.push(curr.child);
+            }
+            return curr.data;
+        }
+    }
+
+    @Override
+    public HeapIterator iterator() {
+        return new HeapIterator();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * ParallelHeapBenchmark
+ * Compares build_heap with parallel_build_heap, and merging shard heaps one merge_heaps call at a time with a
+ * single merge_heaps(List) call, on the common fork/join pool. The speedup grows with the core count; run with
+ * -Djava.util.concurrent.ForkJoinPool.common.parallelism=N to try other pool sizes.
+ */
+
+import java.util.*;
+
+public class ParallelHeapBenchmark {
+
+    private static final int SIZE = 5_000_000;
+    private static final int SHARDS = 64;
+    private static final int ROUNDS = 5;
+
+    private static Integer[] random_keys(int n, long seed) {
+        Random random = new Random(seed);
+        Integer[] keys = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = random.nextInt();
+        }
+        return keys;
+    }
+
+    /* Best of ROUNDS in milliseconds */
+    private static double build(Integer[] keys, boolean parallel) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            Heap<Integer> h = new Heap<>(keys.length);
+            long start = System.nanoTime();
+            if (parallel) {
+                h.parallel_build_heap(keys, keys.length);
+            } else {
+                h.build_heap(keys, keys.length);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    private static List<Heap<Integer>> shards(Integer[] keys) {
+        List<Heap<Integer>> shards = new ArrayList<>(SHARDS);
+        int per_shard = keys.length / SHARDS;
+        for (int s = 0; s < SHARDS; s++) {
+            shards.add(new Heap<>(Arrays.copyOfRange(keys, s * per_shard, (s + 1) * per_shard), per_shard));
+        }
+        return shards;
+    }
+
+    private static double merge(Integer[] keys, boolean at_once) {
+        long best = Long.MAX_VALUE;
+        for (int r = 0; r < ROUNDS; r++) {
+            List<Heap<Integer>> parts = shards(keys);
+            Heap<Integer> h = new Heap<>(keys.length);
+            long start = System.nanoTime();
+            if (at_once) {
+                h.merge_heaps(parts);
+            } else {
+                for (Heap<Integer> part : parts) {
+                    h.merge_heaps(part);
+                }
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1e6;
+    }
+
+    public static void main(String[] args) {
+        Integer[] keys = random_keys(SIZE, 42);
+
+        /* Warm up */
+        build(Arrays.copyOf(keys, SIZE / 10), false);
+        build(Arrays.copyOf(keys, SIZE / 10), true);
+
+        System.out.println(SIZE + " keys, " + Runtime.getRuntime().availableProcessors() + " cores, pool parallelism "
+                + java.util.concurrent.ForkJoinPool.getCommonPoolParallelism() + " :");
+
+        double sequential = build(keys, false);
+        double parallel = build(keys, true);
+        System.out.printf("%-34s %10.1f ms%n", "build_heap", sequential);
+        System.out.printf("%-34s %10.1f ms  %5.2fx%n", "parallel_build_heap", parallel, sequential / parallel);
+
+        double one_by_one = merge(keys, false);
+        double at_once = merge(keys, true);
+        System.out.printf("%-34s %10.1f ms%n", SHARDS + " x merge_heaps(Heap)", one_by_one);
+        System.out.printf("%-34s %10.1f ms  %5.2fx%n", "merge_heaps(List) of " + SHARDS, at_once,
+                one_by_one / at_once);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * SlidingWindow
+ * Ring buffer of the most recent insert events of a windowed HeapDistinct or BSTHeapTree, oldest first, each with
+ * the System.nanoTime it was recorded at. An event expires once more than max_events newer events follow it or
+ * once it is older than max_age_nanos; a bound of 0 is not enforced. Every event is polled out exactly once, so
+ * expiry costs amortized O(1) per event on top of the removal it triggers.
+ */
+
+import java.util.*;
+
+public class SlidingWindow<T> {
+
+    private Object[] events;
+    private long[] times;
+    private int head;
+    private int size;
+
+    private final long max_events;
+    private final long max_age_nanos;
+
+    public SlidingWindow(long max_events, long max_age_nanos) {
+        if (max_events < 0 || max_age_nanos < 0 || (max_events == 0 && max_age_nanos == 0)) {
+            throw new IllegalArgumentException("Window needs a positive event count or age bound");
+        }
+        this.max_events = max_events;
+        this.max_age_nanos = max_age_nanos;
+
+        int capacity = (max_events > 0 && max_events < 16) ? (int) max_events + 1 : 16;
+        events = new Object[capacity];
+        times = new long[capacity];
+    }
+
+    /* Get number of events currently in the window */
+    public int get_size() {
+        return size;
+    }
+
+    public long get_max_events() {
+        return max_events;
+    }
+
+    public long get_max_age_nanos() {
+        return max_age_nanos;
+    }
+
+    /* Record an event at time now, the caller then polls what it pushed out */
+    public void push(T element, long now) {
+        if (size == events.length) {
+            grow();
+        }
+        int tail = (head + size) % events.length;
+        events[tail] = element;
+        times[tail] = now;
+        size++;
+    }
+
+    /* Remove and return the oldest event if it has expired at time now, else null */
+    @SuppressWarnings("unchecked")
+    public T poll_expired(long now) {
+        if (size == 0) {
+            return null;
+        }
+        boolean expired = (max_events > 0 && size > max_events)
+                || (max_age_nanos > 0 && now - times[head] >= max_age_nanos);
+        if (!expired) {
+            return null;
+        }
+
+        T element = (T) events[head];
+        events[head] = null;
+        head = (head + 1) % events.length;
+        size--;
+        return element;
+    }
+
+    /* Forget every event */
+    public void clear() {
+        Arrays.fill(events, null);
+        head = 0;
+        size = 0;
+    }
+
+    /* Double the ring, unrolling it so the oldest event lands at slot 0 */
+    private void grow() {
+        Object[] new_events = new Object[2 * events.length];
+        long[] new_times = new long[2 * events.length];
+        for (int i = 0; i < size; i++) {
+            new_events[i] = events[(head + i) % events.length];
+            new_times[i] = times[(head + i) % events.length];
+        }
+        events = new_events;
+        times = new_times;
+        head = 0;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * SlidingWindowCheck
+ * Quick runner for the windowed mode of HeapDistinct and BSTHeapTree. Each case replays a sequence of adds and
+ * explicit removes on a window of the last few events and compares the counts against the events still in it.
+ * Usage: java SlidingWindowCheck
+ */
+
+import java.util.*;
+
+public class SlidingWindowCheck {
+
+    private static int failures;
+
+    private static void expect(String name, long expected, long actual) {
+        if (expected != actual) {
+            failures++;
+            System.out.println("FAIL " + name + ": expected " + expected + ", got " + actual);
+        }
+    }
+
+    /* Occurrences of element in a HeapDistinct, 0 when it is not there */
+    private static int count(HeapDistinct<Integer> h, int element) {
+        h.expire();
+        int[] idx = new int[1];
+        return h.search_element(element, idx) ? h.get_ith_elements_occurence(idx[0]) : 0;
+    }
+
+    /* Occurrences of element in a BSTHeapTree, 0 when it is not there or the tree is empty */
+    private static int count(BSTHeapTree<Integer> t, int element) {
+        try {
+            return Math.max(0, t.find(element));
+        } catch (NoSuchElementException e) {
+            return 0;
+        }
+    }
+
+    /* add 7, remove 7, add 7, add 1, add 2: the expired first add must not take the second 7 */
+    private static void add_remove_add_expire() {
+        HeapDistinct<Integer> h = new HeapDistinct<>(16, true);
+        h.enable_window(3, 0);
+        h.insert_to_heap(7);
+        h.remove_element(7);
+        h.insert_to_heap(7);
+        h.insert_to_heap(1);
+        h.insert_to_heap(2);
+        expect("HeapDistinct add/remove/add/expire 7", 1, count(h, 7));
+
+        for (boolean balanced : new boolean[] { false, true }) {
+            BSTHeapTree<Integer> t = new BSTHeapTree<>(4, true, balanced);
+            t.enable_window(3, 0);
+            t.add(7);
+            t.remove(7);
+            t.add(7);
+            t.add(1);
+            t.add(2);
+            expect("BSTHeapTree add/remove/add/expire 7 balanced=" + balanced, 1, count(t, 7));
+            expect("BSTHeapTree add/remove/add/expire 1 balanced=" + balanced, 1, count(t, 1));
+        }
+    }
+
+    /* Random adds and removes against a plain replay of the window */
+    private static void random_replay(long seed) {
+        Random random = new Random(seed);
+        int width = 8;
+        HeapDistinct<Integer> h = new HeapDistinct<>(64, true);
+        h.enable_window(width, 0);
+        BSTHeapTree<Integer> t = new BSTHeapTree<>(4, true, true);
+        t.enable_window(width, 0);
+
+        /* Each window slot holds its element until an explicit remove has taken it back */
+        ArrayDeque<int[]> events = new ArrayDeque<>();
+        for (int step = 0; step < 2000; step++) {
+            int element = random.nextInt(6);
+            boolean live = false;
+            for (int[] event : events) {
+                live |= event[0] == element && event[1] == 1;
+            }
+            if (random.nextInt(3) == 0 && live) {
+                h.remove_element(element);
+                t.remove(element);
+                /* Cancels the oldest live event of element */
+                for (int[] event : events) {
+                    if (event[0] == element && event[1] == 1) {
+                        event[1] = 0;
+                        break;
+                    }
+                }
+            } else {
+                h.insert_to_heap(element);
+                t.add(element);
+                events.addLast(new int[] { element, 1 });
+                if (events.size() > width) {
+                    events.removeFirst();
+                }
+            }
+
+            for (int e = 0; e < 6; e++) {
+                int expected = 0;
+                for (int[] event : events) {
+                    expected += (event[0] == e) ? event[1] : 0;
+                }
+                expect("HeapDistinct replay seed " + seed + " step " + step + " element " + e, expected, count(h, e));
+                expect("BSTHeapTree replay seed " + seed + " step " + step + " element " + e, expected, count(t, e));
+            }
+            if (failures > 0) {
+                return;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        add_remove_add_expire();
+        for (long seed = 0; seed < 20 && failures == 0; seed++) {
+            random_replay(seed);
+        }
+        System.out.println((failures == 0) ? "ok" : failures + " failures");
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * SpaceSaving
+ * Approximate frequency counting in constant memory for streams with too many distinct values to keep them all
+ * in a BSTHeapTree. At most capacity elements are monitored, in a FrequencyIndex so every add is O(1). When an
+ * unmonitored element arrives and every counter is taken, the element with the lowest count n is evicted and the
+ * newcomer takes over its counter as n + 1, remembering n as its possible overcount.
+ *
+ * Counts never undercount, overcount by at most adds / capacity, and every element occurring more than that is
+ * monitored. An optional CountMinSketch is updated alongside and caps every estimate with its own upper bound,
+ * which tightens the counts of elements that were evicted and came back.
+ */
+
+import java.util.*;
+
+public class SpaceSaving<T> {
+
+    private final int capacity;
+    private final FrequencyIndex<T> counters = new FrequencyIndex<>();
+
+    /* Count the element inherited on taking over a counter, its largest possible overcount */
+    private final Map<T, Integer> overcount = new HashMap<>();
+
+    private final CountMinSketch<T> sketch;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        this(capacity, null);
+    }
+
+    /* Summary with capacity counters, backed by sketch unless it is null */
+    public SpaceSaving(int capacity, CountMinSketch<T> sketch) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.sketch = sketch;
+    }
+
+    /* Count one more occurrence of element and return its estimated count */
+    public int add(T element) {
+        total++;
+        if (sketch != null) {
+            sketch.add(element);
+        }
+
+        if (counters.get_frequency(element) == 0 && counters.get_distinct_count() == capacity) {
+            T evicted = counters.get_min_element();
+            int inherited = counters.replace(evicted, element);
+            overcount.remove(evicted);
+            overcount.put(element, inherited);
+        }
+        return counters.increment(element);
+    }
+
+    /*
+     * Estimated occurrences of element, never below the true count. An element
+     * that is not monitored occurred at most as often as the lowest counter.
+     */
+    public long find(T element) {
+        long estimate = counters.get_frequency(element);
+        if (estimate == 0 && counters.get_distinct_count() == capacity) {
+            estimate = counters.get_min_frequency();
+        }
+        if (sketch != null) {
+            estimate = Math.min(estimate, sketch.estimate(element));
+        }
+        return estimate;
+    }
+
+    /* Occurrences element is guaranteed to have had, 0 when it is not monitored */
+    public long find_guaranteed(T element) {
+        int count = counters.get_frequency(element);
+        return (count == 0) ? 0 : count - overcount.getOrDefault(element, 0);
+    }
+
+    /* Largest possible overcount of find for element */
+    public long get_error(T element) {
+        return find(element) - find_guaranteed(element);
+    }
+
+    /* Bound on the overcount of every estimate, adds / capacity */
+    public long get_error_bound() {
+        return total / capacity;
+    }
+
+    /* Highest estimated count, 0 when nothing was added */
+    public int find_mode() {
+        return counters.get_max_frequency();
+    }
+
+    /*
+     * Returns up to k monitored elements by estimated count, most frequent
+     * first. Every element occurring more than adds / capacity times is among
+     * the monitored ones.
+     */
+    public List<T> top_k_frequent(int k) {
+        return counters.top_k(k);
+    }
+
+    public int get_capacity() {
+        return capacity;
+    }
+
+    /* Get number of elements currently monitored */
+    public int get_monitored() {
+        return counters.get_distinct_count();
+    }
+
+    /* Get number of adds counted */
+    public long get_total() {
+        return total;
+    }
+}